@@ -0,0 +1,232 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Benchmark2048 times the hot paths of the game engine so changes can be compared
+ * against a measured baseline. Every benchmark runs on board sizes 4 through 10
+ * (4x4 both packed and unpacked) at several fill levels, warms up first, and
+ * reports the average time and the bytes allocated per operation.
+ *
+ * This runner needs no build and gives quick numbers. The same cases run under JMH in
+ * the jmh module (see README), which gets them from operation() since classes in the
+ * default package cannot be referenced from a JMH benchmark's package.
+ *
+ * Usage: java Benchmark2048 [measureMillis] [nameFilter]
+ */
+public class Benchmark2048 {
+    /*************************************************************************/
+    /* Variables */
+    /** The names of the board benchmarks, for operation(). */
+    public static final String[] BOARD_CASES = {"copyFrom", "move(UP)", "move(DOWN)", "move(LEFT)", "move(RIGHT)",
+            "newTile", "getGameStatus", "Board.getValue"};
+    private static final double[] FILL_LEVELS = {0.25, 0.5, 0.75, 0.95}; // Share of occupied cells
+    private static final int BOARDS = 256; // Prepared boards cycled through by each benchmark
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static volatile long sink; // Results are written here so the JIT cannot drop the work
+    private long measureNanos;
+    private long warmupNanos;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a benchmark runner.
+     *
+     * @param measureMillis     How long each benchmark is measured for (warm up takes half as long)
+     */
+    public Benchmark2048(long measureMillis){
+        this.measureNanos = measureMillis * 1000000L;
+        this.warmupNanos = measureNanos / 2;
+    }
+
+    /*************************************************************************/
+    /* Benchmarks */
+    /**
+     * This runs every benchmark whose name contains the filter and prints one line per result.
+     *
+     * @param filter    Only benchmarks with this text in their name are run ("" for all)
+     */
+    public void runAll(String filter){
+        System.out.printf("%-22s %-7s %-10s %8s %8s%n", "Benchmark", "Engine", "Size", "ns/op", "B/op");
+        for (int size = 4; size <= 10; size++) {
+            for (int packed = (size == 4) ? 1 : 0; packed >= 0; packed--) {
+                for (double fill : FILL_LEVELS) {
+                    runBoard(filter, size, packed == 1, fill);
+                }
+            }
+        }
+        for (String name : new String[] {"Tile.new", "Tile.of"}) {
+            if (name.contains(filter)) {
+                report(name, "-", 0, 0, time(tileOperation(name)));
+            }
+        }
+    }
+
+    // Runs the board benchmarks for one size, engine and fill level
+    private void runBoard(String filter, int size, boolean packed, double fill){
+        GameController[] boards = prepare(size, packed, fill);
+        GameController work = new GameController(size, winValue(packed), new Random(1));
+        String engine = packed ? "packed" : "flat";
+        for (String name : BOARD_CASES) {
+            if (name.contains(filter)) {
+                // Every operation starts by copying a prepared board into the working one,
+                // so the copy is measured on its own as a baseline to subtract
+                String label = name.equals("copyFrom") ? "copyFrom (baseline)" : name;
+                report(label, engine, size, fill, time(boardOperation(name, boards, work)));
+            }
+        }
+    }
+
+    /**
+     * This returns one benchmark case, ready to run. The argument of the returned function
+     * counts the calls (it must keep growing so every prepared board gets used) and the
+     * result must be consumed so the JIT cannot drop the work.
+     *
+     * @param name      One of BOARD_CASES, or Tile.new or Tile.of
+     * @param size      The board size, between 4 and 10 (ignored for the Tile cases)
+     * @param packed    True for the packed 4x4 engine
+     * @param fill      The share of cells holding tiles, between 0 and 1
+     * @return IntToLongFunction    The operation
+     */
+    public static IntToLongFunction operation(String name, int size, boolean packed, double fill){
+        if (name.startsWith("Tile.")) {
+            return tileOperation(name);
+        }
+        if (packed && size != BitBoard.SIZE) {
+            throw new IllegalArgumentException("Only 4x4 boards can be packed");
+        }
+        GameController work = new GameController(size, winValue(packed), new Random(1));
+        return boardOperation(name, prepare(size, packed, fill), work);
+    }
+
+    // One board case, cycling through the prepared boards
+    private static IntToLongFunction boardOperation(String name, GameController[] boards, GameController work){
+        int size = work.getBoard().getBoardSize();
+        switch (name) {
+            case "copyFrom":
+                return i -> {
+                    work.copyFrom(boards[i % BOARDS]);
+                    return work.getBoard().getVersion();
+                };
+            case "newTile":
+                return i -> {
+                    work.copyFrom(boards[i % BOARDS]);
+                    work.newTile();
+                    return work.getBoard().getVersion();
+                };
+            case "getGameStatus":
+                return i -> {
+                    work.copyFrom(boards[i % BOARDS]);
+                    return work.getGameStatus().ordinal();
+                };
+            case "Board.getValue":
+                // One operation reads a single cell, walking over the whole board and then the next one
+                int cells = size * size;
+                return i -> {
+                    int cell = i % cells;
+                    return boards[(i / cells) % BOARDS].getBoard().getValue(cell / size, cell % size);
+                };
+            default:
+                for (Direction direction : DIRECTIONS) {
+                    if (name.equals("move(" + direction + ")")) {
+                        return i -> {
+                            work.copyFrom(boards[i % BOARDS]);
+                            return work.move(direction).getScoreDelta();
+                        };
+                    }
+                }
+                throw new IllegalArgumentException("Unknown benchmark: " + name);
+        }
+    }
+
+    // Tile construction and lookup
+    private static IntToLongFunction tileOperation(String name){
+        switch (name) {
+            case "Tile.new":
+                return i -> (long) new Tile(2 << (i & 15)).getValue();
+            case "Tile.of":
+                return i -> Tile.of(1 + (i & 15)).getExponent();
+            default:
+                throw new IllegalArgumentException("Unknown benchmark: " + name);
+        }
+    }
+
+    // Builds boards with the given share of cells holding random tiles
+    private static GameController[] prepare(int size, boolean packed, double fill){
+        Random rand = new Random(size * 31 + (long) (fill * 100));
+        GameController[] boards = new GameController[BOARDS];
+        int tiles = (int) Math.round(fill * size * size);
+        for (int b = 0; b < BOARDS; b++) {
+            boards[b] = new GameController(size, winValue(packed), rand);
+            Board board = boards[b].getBoard();
+            for (int cell = 0; cell < size * size; cell++) {
+                board.setCell(cell, 0); // Clear the starting tile
+            }
+            while (board.getEmptyCount() > size * size - tiles) {
+                int cell = board.getEmptyCell(rand.nextInt(board.getEmptyCount()));
+                board.setCell(cell, 1 + rand.nextInt(10));
+            }
+        }
+        return boards;
+    }
+
+    // GameController packs 4x4 boards unless the win value is too big for a nibble
+    private static int winValue(boolean packed){
+        return packed ? 2048 : 1 << 20;
+    }
+
+    /*************************************************************************/
+    /* Timing Methods */
+    // Warms up, then runs the operation in batches until the measure time is used up.
+    // Returns {nanoseconds per op, bytes allocated per op}.
+    private double[] time(IntToLongFunction operation){
+        loop(operation, warmupNanos);
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long ops = loop(operation, measureNanos);
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new double[] {(double) elapsed / ops, (double) allocated / ops};
+    }
+
+    // Runs batches of the operation for about the given time and returns how many ran.
+    // The call count carries on across batches, so cases that step through the prepared
+    // boards by it reach all of them instead of the same few every batch.
+    private long loop(IntToLongFunction operation, long nanos){
+        long end = System.nanoTime() + nanos;
+        long ops = 0;
+        long result = 0;
+        int batch = 1024;
+        int call = 0;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < batch; i++) {
+                result += operation.applyAsLong(call);
+                call = (call + 1) & Integer.MAX_VALUE; // Stays positive for the % in the cases
+            }
+            ops += batch;
+        }
+        sink = result;
+        return ops;
+    }
+
+    // Prints one result line
+    private static void report(String name, String engine, int size, double fill, double[] result){
+        String board = (size == 0) ? "" : size + "x" + size + " " + Math.round(fill * 100) + "%";
+        System.out.printf("%-22s %-7s %-10s %8.1f %8.1f%n", name, engine, board, result[0], result[1]);
+    }
+
+    /*************************************************************************/
+    /* Main Method */
+    /**
+     * This main method runs the benchmarks.
+     *
+     * @param args      [measureMillis] [nameFilter]
+     */
+    public static void main(String[] args){
+        long measureMillis = (args.length > 0) ? Long.parseLong(args[0]) : 500;
+        String filter = (args.length > 1) ? args[1] : "";
+        new Benchmark2048(measureMillis).runAll(filter);
+    }
+}
@@ -0,0 +1,491 @@
+/**
+ * BitBoard holds the move, spawn and status logic for the default 4x4 board when
+ * it is packed into a single long. Each cell takes 4 bits holding the log2 exponent
+ * of its value (0 for an empty cell, 1 for 2, 2 for 4, ... 15 for 32768). Cell
+ * (row, col) lives in nibble row * 4 + col, so each row is one 16 bit chunk.
+ */
+public final class BitBoard {
+    /*************************************************************************/
+    /* Constants */
+    public static final int SIZE = 4; // Number of rows/columns in a packed board
+    public static final int CELLS = SIZE * SIZE;
+    public static final int MAX_EXPONENT = 15; // Largest exponent a nibble can hold (32768)
+
+    private static final long ROW_MASK = 0xFFFFL;
+    // One bit in the low corner of every nibble
+    private static final long NIBBLE_LOW_BITS = 0x1111111111111111L;
+    // Low nibble bits for columns 0-2 of every row (cells that have a right neighbor)
+    private static final long HAS_RIGHT_NEIGHBOR = 0x0111011101110111L;
+    // Low nibble bits for rows 0-2 (cells that have a neighbor below)
+    private static final long HAS_LOWER_NEIGHBOR = 0x0000111111111111L;
+
+    /*************************************************************************/
+    /* Constructors */
+    // Only static helpers live here, so it should never be instantiated
+    private BitBoard(){
+    }
+
+    /*************************************************************************/
+    /* Cell Access Methods */
+    /**
+     * This returns the exponent stored in a cell of the packed board.
+     *
+     * @param board     The packed board
+     * @param row       A row between 0 and 3
+     * @param col       A column between 0 and 3
+     * @return int      The exponent of the tile value, or 0 if the cell is empty
+     */
+    public static int get(long board, int row, int col){
+        return (int) (board >>> shift(row, col)) & 0xF;
+    }
+
+    /**
+     * This returns a copy of the packed board with one cell replaced.
+     *
+     * @param board     The packed board
+     * @param row       A row between 0 and 3
+     * @param col       A column between 0 and 3
+     * @param exponent  The exponent to store (0 clears the cell)
+     * @return long     The updated packed board
+     */
+    public static long set(long board, int row, int col, int exponent){
+        if (exponent < 0 || exponent > MAX_EXPONENT) {
+            throw new IllegalArgumentException();
+        }
+        int shift = shift(row, col);
+        return (board & ~(0xFL << shift)) | ((long) exponent << shift);
+    }
+
+    // Bit offset of the nibble for the given cell
+    private static int shift(int row, int col){
+        return (row * SIZE + col) * 4;
+    }
+
+    /*************************************************************************/
+    /* Lookup Tables */
+    // Every possible 16 bit row is slid once when the class loads, so a move is
+    // one table lookup per row. The tables are shared by every game in the JVM.
+    private static final int ROWS = 1 << 16;
+    private static final char[] ROW_LEFT = new char[ROWS]; // Row after a left move
+    private static final char[] ROW_RIGHT = new char[ROWS]; // Row after a right move
+    private static final long[] COL_UP = new long[ROWS]; // Transposed row after an up move, spread back into column 0
+    private static final long[] COL_DOWN = new long[ROWS]; // Transposed row after a down move, spread back into column 0
+    private static final int[] SCORE_LEFT = new int[ROWS]; // Points gained by merging the row to the left
+    private static final int[] SCORE_RIGHT = new int[ROWS]; // Points gained by merging the row to the right
+    private static final boolean[] CHANGED_LEFT = new boolean[ROWS]; // True if a left move changes the row
+    private static final boolean[] CHANGED_RIGHT = new boolean[ROWS]; // True if a right move changes the row
+
+    static {
+        for (int line = 0; line < ROWS; line++) {
+            int reversed = reverseRow(line);
+            int left = slideRowLeft(line);
+            int right = reverseRow(slideRowLeft(reversed));
+            ROW_LEFT[line] = (char) left;
+            ROW_RIGHT[line] = (char) right;
+            COL_UP[line] = unpackColumn(left);
+            COL_DOWN[line] = unpackColumn(right);
+            SCORE_LEFT[line] = mergeScore(line);
+            SCORE_RIGHT[line] = mergeScore(reversed);
+            CHANGED_LEFT[line] = left != line;
+            CHANGED_RIGHT[line] = right != line;
+        }
+    }
+
+    /*************************************************************************/
+    /* Move Methods */
+    /**
+     * This slides every row of the packed board to the left, merging equal neighbors.
+     *
+     * @param board     The packed board
+     * @return long     The board after the move (equal to the input if nothing moved)
+     */
+    public static long moveLeft(long board){
+        return (long) ROW_LEFT[row(board, 0)]
+                | (long) ROW_LEFT[row(board, 1)] << 16
+                | (long) ROW_LEFT[row(board, 2)] << 32
+                | (long) ROW_LEFT[row(board, 3)] << 48;
+    }
+
+    /**
+     * This slides every row of the packed board to the right, merging equal neighbors.
+     *
+     * @param board     The packed board
+     * @return long     The board after the move (equal to the input if nothing moved)
+     */
+    public static long moveRight(long board){
+        return (long) ROW_RIGHT[row(board, 0)]
+                | (long) ROW_RIGHT[row(board, 1)] << 16
+                | (long) ROW_RIGHT[row(board, 2)] << 32
+                | (long) ROW_RIGHT[row(board, 3)] << 48;
+    }
+
+    /**
+     * This slides every column of the packed board upwards, merging equal neighbors.
+     *
+     * @param board     The packed board
+     * @return long     The board after the move (equal to the input if nothing moved)
+     */
+    public static long moveUp(long board){
+        // Columns become rows after a transpose, and the table puts each one straight back as a column
+        long columns = transpose(board);
+        return COL_UP[row(columns, 0)]
+                | COL_UP[row(columns, 1)] << 4
+                | COL_UP[row(columns, 2)] << 8
+                | COL_UP[row(columns, 3)] << 12;
+    }
+
+    /**
+     * This slides every column of the packed board downwards, merging equal neighbors.
+     *
+     * @param board     The packed board
+     * @return long     The board after the move (equal to the input if nothing moved)
+     */
+    public static long moveDown(long board){
+        long columns = transpose(board);
+        return COL_DOWN[row(columns, 0)]
+                | COL_DOWN[row(columns, 1)] << 4
+                | COL_DOWN[row(columns, 2)] << 8
+                | COL_DOWN[row(columns, 3)] << 12;
+    }
+
+    /**
+     * This applies one move to the packed board.
+     *
+     * @param board         The packed board
+     * @param direction     The direction to move the tiles in
+     * @return long         The board after the move (equal to the input if nothing moved)
+     */
+    public static long move(long board, Direction direction){
+        switch (direction) {
+            case UP:
+                return moveUp(board);
+            case DOWN:
+                return moveDown(board);
+            case LEFT:
+                return moveLeft(board);
+            default:
+                return moveRight(board);
+        }
+    }
+
+    /*************************************************************************/
+    /* Score Methods */
+    /**
+     * This returns the points a left move would earn (the sum of the merged tile values).
+     *
+     * @param board     The packed board
+     * @return int      The points gained by the move
+     */
+    public static int scoreLeft(long board){
+        return SCORE_LEFT[row(board, 0)] + SCORE_LEFT[row(board, 1)]
+                + SCORE_LEFT[row(board, 2)] + SCORE_LEFT[row(board, 3)];
+    }
+
+    /**
+     * This returns the points a right move would earn (the sum of the merged tile values).
+     *
+     * @param board     The packed board
+     * @return int      The points gained by the move
+     */
+    public static int scoreRight(long board){
+        return SCORE_RIGHT[row(board, 0)] + SCORE_RIGHT[row(board, 1)]
+                + SCORE_RIGHT[row(board, 2)] + SCORE_RIGHT[row(board, 3)];
+    }
+
+    /**
+     * This returns the points an up move would earn (the sum of the merged tile values).
+     *
+     * @param board     The packed board
+     * @return int      The points gained by the move
+     */
+    public static int scoreUp(long board){
+        return scoreLeft(transpose(board));
+    }
+
+    /**
+     * This returns the points a down move would earn (the sum of the merged tile values).
+     *
+     * @param board     The packed board
+     * @return int      The points gained by the move
+     */
+    public static int scoreDown(long board){
+        return scoreRight(transpose(board));
+    }
+
+    /**
+     * This returns the points a move in the given direction would earn.
+     *
+     * @param board         The packed board
+     * @param direction     The direction to move the tiles in
+     * @return int          The points gained by the move
+     */
+    public static int score(long board, Direction direction){
+        switch (direction) {
+            case UP:
+                return scoreUp(board);
+            case DOWN:
+                return scoreDown(board);
+            case LEFT:
+                return scoreLeft(board);
+            default:
+                return scoreRight(board);
+        }
+    }
+
+    /*************************************************************************/
+    /* Changed Methods */
+    /**
+     * This checks if a left move would change the packed board.
+     *
+     * @param board     The packed board
+     * @return boolean  True if at least one tile would move or merge
+     */
+    public static boolean canMoveLeft(long board){
+        return CHANGED_LEFT[row(board, 0)] || CHANGED_LEFT[row(board, 1)]
+                || CHANGED_LEFT[row(board, 2)] || CHANGED_LEFT[row(board, 3)];
+    }
+
+    /**
+     * This checks if a right move would change the packed board.
+     *
+     * @param board     The packed board
+     * @return boolean  True if at least one tile would move or merge
+     */
+    public static boolean canMoveRight(long board){
+        return CHANGED_RIGHT[row(board, 0)] || CHANGED_RIGHT[row(board, 1)]
+                || CHANGED_RIGHT[row(board, 2)] || CHANGED_RIGHT[row(board, 3)];
+    }
+
+    /**
+     * This checks if an up move would change the packed board.
+     *
+     * @param board     The packed board
+     * @return boolean  True if at least one tile would move or merge
+     */
+    public static boolean canMoveUp(long board){
+        return canMoveLeft(transpose(board));
+    }
+
+    /**
+     * This checks if a down move would change the packed board.
+     *
+     * @param board     The packed board
+     * @return boolean  True if at least one tile would move or merge
+     */
+    public static boolean canMoveDown(long board){
+        return canMoveRight(transpose(board));
+    }
+
+    /*************************************************************************/
+    /* Row Helpers */
+    // Returns one 16 bit row of the packed board
+    private static int row(long board, int row){
+        return (int) (board >>> (16 * row)) & 0xFFFF;
+    }
+
+    // Slides a single 16 bit row towards column 0 in one pass.
+    // A tile only merges once per move, and two 32768 tiles never merge since
+    // the result would not fit in a nibble.
+    private static int slideRowLeft(int line){
+        int result = 0;
+        int out = 0; // Next column to write to
+        int pending = 0; // Exponent waiting to see if the next tile matches it
+        for (int col = 0; col < SIZE; col++) {
+            int exponent = (line >>> (4 * col)) & 0xF;
+            if (exponent == 0) {
+                continue;
+            }
+            if (exponent == pending && exponent < MAX_EXPONENT) {
+                result |= (exponent + 1) << (4 * out++);
+                pending = 0;
+            } else {
+                if (pending != 0) {
+                    result |= pending << (4 * out++);
+                }
+                pending = exponent;
+            }
+        }
+        if (pending != 0) {
+            result |= pending << (4 * out);
+        }
+        return result;
+    }
+
+    // Adds up the values of the tiles created when the row slides to the left
+    private static int mergeScore(int line){
+        int score = 0;
+        int pending = 0;
+        for (int col = 0; col < SIZE; col++) {
+            int exponent = (line >>> (4 * col)) & 0xF;
+            if (exponent == 0) {
+                continue;
+            }
+            if (exponent == pending && exponent < MAX_EXPONENT) {
+                score += 1 << (exponent + 1);
+                pending = 0;
+            } else {
+                pending = exponent;
+            }
+        }
+        return score;
+    }
+
+    // Flips the order of the four nibbles in a row
+    private static int reverseRow(int line){
+        return ((line & 0xF) << 12) | ((line & 0xF0) << 4) | ((line >>> 4) & 0xF0) | ((line >>> 12) & 0xF);
+    }
+
+    // Spreads the four nibbles of a row down column 0 of an otherwise empty board
+    private static long unpackColumn(int line){
+        long column = line & 0xFFFFL;
+        return (column | (column << 12) | (column << 24) | (column << 36)) & 0x000F000F000F000FL;
+    }
+
+    /**
+     * This swaps rows and columns of the packed board.
+     *
+     * @param board     The packed board
+     * @return long     The transposed board
+     */
+    public static long transpose(long board){
+        // Swap the off-diagonal nibbles inside each 2x2 block
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        // Then swap the off-diagonal 2x2 blocks
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    /**
+     * This mirrors the packed board left to right.
+     *
+     * @param board     The packed board
+     * @return long     The board with every row reversed
+     */
+    public static long mirror(long board){
+        return ((board & 0xF000F000F000F000L) >>> 12) | ((board & 0x0F000F000F000F00L) >>> 4)
+                | ((board & 0x00F000F000F000F0L) << 4) | ((board & 0x000F000F000F000FL) << 12);
+    }
+
+    /**
+     * This flips the packed board upside down.
+     *
+     * @param board     The packed board
+     * @return long     The board with the row order reversed
+     */
+    public static long flip(long board){
+        return (board << 48) | ((board & 0xFFFF0000L) << 16)
+                | ((board >>> 16) & 0xFFFF0000L) | (board >>> 48);
+    }
+
+    /**
+     * This picks one representative of the 8 rotations/reflections of the packed board,
+     * so boards that only differ by symmetry map to the same value.
+     *
+     * @param board     The packed board
+     * @return long     The smallest of the 8 symmetric boards
+     */
+    public static long canonical(long board){
+        long transposed = transpose(board);
+        long best = Math.min(board, mirror(board));
+        best = Math.min(best, Math.min(flip(board), flip(mirror(board))));
+        best = Math.min(best, Math.min(transposed, mirror(transposed)));
+        return Math.min(best, Math.min(flip(transposed), flip(mirror(transposed))));
+    }
+
+    /*************************************************************************/
+    /* Spawn Methods */
+    /**
+     * This returns a mask with the lowest bit of every empty nibble set.
+     *
+     * @param board     The packed board
+     * @return long     The empty cell mask
+     */
+    public static long emptyMask(long board){
+        return zeroNibbles(board) & NIBBLE_LOW_BITS;
+    }
+
+    /**
+     * This counts the empty cells on the packed board.
+     *
+     * @param board     The packed board
+     * @return int      The number of empty cells (0 to 16)
+     */
+    public static int countEmpty(long board){
+        return Long.bitCount(emptyMask(board));
+    }
+
+    /**
+     * This places a tile in the n-th empty cell of the packed board, counting in row-major order.
+     *
+     * @param board     The packed board
+     * @param n         Which empty cell to fill, between 0 and countEmpty(board) - 1
+     * @param exponent  The exponent of the new tile
+     * @return long     The board with the new tile
+     */
+    public static long spawn(long board, int n, int exponent){
+        long mask = emptyMask(board);
+        // Drop the lowest empty cells until the n-th one is at the bottom of the mask
+        for (int i = 0; i < n; i++) {
+            mask &= mask - 1;
+        }
+        if (mask == 0) {
+            throw new IllegalArgumentException();
+        }
+        return board | ((long) exponent << Long.numberOfTrailingZeros(mask));
+    }
+
+    /*************************************************************************/
+    /* Status Methods */
+    /**
+     * This returns the largest exponent on the packed board.
+     *
+     * @param board     The packed board
+     * @return int      The largest exponent, or 0 if the board is empty
+     */
+    public static int maxExponent(long board){
+        int max = 0;
+        for (int i = 0; i < CELLS; i++) {
+            max = Math.max(max, (int) (board >>> (4 * i)) & 0xF);
+        }
+        return max;
+    }
+
+    /**
+     * This checks if any two neighboring cells hold the same tile that can merge.
+     * Empty neighbors count as equal, so only call this on a full board
+     * if empty cells should be ignored. Two 32768s do not count, since the
+     * move tables never merge them (the result would not fit in a nibble).
+     *
+     * @param board     The packed board
+     * @return boolean  True if a merge is possible
+     */
+    public static boolean hasEqualNeighbors(long board){
+        // XOR with the neighbor leaves a zero nibble wherever the two cells match
+        long horizontal = zeroNibbles(board ^ (board >>> 4)) & HAS_RIGHT_NEIGHBOR;
+        long vertical = zeroNibbles(board ^ (board >>> 16)) & HAS_LOWER_NEIGHBOR;
+        long maxed = zeroNibbles(~board); // Cells holding MAX_EXPONENT
+        return ((horizontal | vertical) & ~maxed) != 0;
+    }
+
+    /**
+     * This checks if any move can still change the packed board.
+     *
+     * @param board     The packed board
+     * @return boolean  True if the board has an empty cell or a possible merge
+     */
+    public static boolean canMove(long board){
+        return emptyMask(board) != 0 || hasEqualNeighbors(board);
+    }
+
+    // Sets the lowest bit of every nibble that is zero (other bits are left as garbage)
+    private static long zeroNibbles(long x){
+        x |= (x >>> 2) & 0x3333333333333333L;
+        x |= x >>> 1;
+        return ~x;
+    }
+}
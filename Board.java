@@ -9,76 +9,218 @@
 //TODO: Add try and catch block to deal with thrown exceptions
 //TODO: Add JavaDoc comments
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
 public class Board {
     /************************************************************/
     /* Variables */
-    //Note: Still need to make the LinkedList class so we can actually use it here
-    //private LinkedList<LinkedList<Tile>> b;
-    //Code given in project outline: LinkedList<LinkedList<Tile>> b = new LinkedList<LinkedList<Tile>>();
-    private LinkedList<LinkedList<Tile>> board = new LinkedList<LinkedList<Tile>>();
+    //Cells are stored as the log2 exponent of their value (0 means empty).
+    //4x4 boards can be packed into a single long (see BitBoard); every other
+    //board keeps one byte per cell in row-major order, so cell (row, col)
+    //is at index row * boardSize + col.
+    private byte[] cells; // Only used when the board is not packed
+    //Index of the empty cells of an unpacked board, kept up to date by setCell.
+    //emptyCells holds the index of every empty cell in its first emptyCount slots
+    //and emptySlot maps a cell back to its slot, so both adding and removing
+    //a cell are a single swap.
+    private byte[] emptyCells;
+    private byte[] emptySlot;
+    private int emptyCount;
+    //Largest exponent on an unpacked board. It is raised as tiles are set and only
+    //rescanned if the largest tile was removed (maxDirty), which moves rarely do
+    //since the tile is written again further down the line.
+    private int maxExponent;
+    private boolean maxDirty;
+    private int version; // Goes up every time a cell changes, so cached checks know when to rerun
     private int boardSize;
+    private boolean packed; // True when the cells are stored in the packed long below
+    private long packedCells; // 4x4 board with a 4 bit exponent per cell (see BitBoard)
+    //Zobrist hashing: every (cell, exponent) pair has a random key and empty cells have
+    //key 0, so the hash of a board is the XOR of the keys of its tiles. There is a key
+    //for every exponent a cell can hold (0..Byte.MAX_VALUE).
+    private static final int ZOBRIST_EXPONENTS = Byte.MAX_VALUE + 1;
+    private static final long[] ZOBRIST = new long[100 * ZOBRIST_EXPONENTS];
+    //SYMMETRIES[boardSize][s][index] is the cell that index moves to under symmetry s
+    //(bit 2 transposes, bit 0 mirrors left to right and bit 1 flips upside down)
+    private static final int SYMMETRY_COUNT = 8;
+    private static final byte[][][] SYMMETRIES = new byte[11][][];
+    static {
+        SplittableRandom rand = new SplittableRandom(2048); // Fixed seed so keys are the same every run
+        for(int i = 0; i < ZOBRIST.length; i++){
+            ZOBRIST[i] = (i % ZOBRIST_EXPONENTS == 0) ? 0 : rand.nextLong();
+        }
+        for(int size = 4; size <= 10; size++){
+            SYMMETRIES[size] = new byte[SYMMETRY_COUNT][size * size];
+            for(int s = 0; s < SYMMETRY_COUNT; s++){
+                for(int row = 0; row < size; row++){
+                    for(int col = 0; col < size; col++){
+                        int r = ((s & 4) != 0) ? col : row;
+                        int c = ((s & 4) != 0) ? row : col;
+                        r = ((s & 2) != 0) ? size - 1 - r : r;
+                        c = ((s & 1) != 0) ? size - 1 - c : c;
+                        SYMMETRIES[size][s][row * size + col] = (byte) (r * size + c);
+                    }
+                }
+            }
+        }
+    }
+    //Zobrist hash of each of the 8 symmetries of an unpacked board, worked out when first
+    //asked for after a change (only the solver's caches use them, so moves never pay for it).
+    //hashes[0] is the board as it is. Packed boards hash their long when asked instead.
+    private long[] hashes;
+    private int hashedVersion; // The version hashes were worked out for
+    private byte[][] symmetries;
     /************************************************************/
     /* Constructors */
     public Board()
     {
-        // Default constructor sets the board to a 4x4 size
+        // Default constructor sets the board to a 4x4 size, packed into a single long
         this.boardSize = 4;
-        //creates the 4x4 board of null tiles
-        for(int row = 0;row < 4; row++){
-            board.add(row,new LinkedList<Tile>());
-            for(int col = 0; col < 4; col++){
-                board.get(row).add(col,null);
-            }
-        }
-
+        this.packed = true;
     }
     // This constructor takes a boardSize and setts the board to it
     public Board(int boardSize)
     {
         if (boardSize <= 10 && boardSize >= 4) // Validate boardSize
         {
-            this.boardSize = boardSize;
+            allocate(boardSize);
         } else throw new IllegalArgumentException();
-
-        //creates the board of null tiles
-        for(int row = 0;row < boardSize; row++){
-            board.add(row,new LinkedList<Tile>());
-            for(int col = 0; col < boardSize; col++){
-                board.get(row).add(col,null);
+    }
+    //creates an empty unpacked board of the given size
+    private void allocate(int boardSize)
+    {
+        this.boardSize = boardSize;
+        cells = new byte[boardSize * boardSize];
+        emptyCells = new byte[cells.length];
+        emptySlot = new byte[cells.length];
+        for(int i = 0; i < cells.length; i++){
+            emptyCells[i] = (byte) i;
+            emptySlot[i] = (byte) i;
+        }
+        emptyCount = cells.length;
+        hashes = new long[SYMMETRY_COUNT]; // An empty board hashes to 0
+        symmetries = SYMMETRIES[boardSize];
+    }
+    // This constructor lets the caller choose the packed 4x4 storage.
+    // Packed boards can only hold tiles up to 32768 (see BitBoard).
+    public Board(int boardSize, boolean packed)
+    {
+        this(boardSize);
+        if (packed)
+        {
+            if (boardSize != BitBoard.SIZE) // Only 4x4 boards fit in a long
+            {
+                throw new IllegalArgumentException();
             }
+            this.cells = null;
+            this.emptyCells = null;
+            this.emptySlot = null;
+            this.hashes = null;
+            this.symmetries = null;
+            this.packed = true;
         }
-
+    }
+    // This copy constructor creates a board with the same size, storage and tiles as another
+    public Board(Board other)
+    {
+        this(other.boardSize, other.packed);
+        copyFrom(other);
+    }
+    /************************************************************/
+    /* CopyFrom Method */
+    /**
+     * Overwrites every cell of this board with the cells of another board of the same
+     * size and storage, without allocating anything. Handy for scratch boards that
+     * are reused across many simulated moves.
+     *
+     * @param other     The board to copy
+     */
+    public void copyFrom(Board other)
+    {
+        if(other.boardSize != boardSize || other.packed != packed){
+            throw new IllegalArgumentException();
+        }
+        if(packed){
+            setPackedCells(other.packedCells);
+            return;
+        }
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.emptyCells, 0, emptyCells, 0, cells.length);
+        System.arraycopy(other.emptySlot, 0, emptySlot, 0, cells.length);
+        emptyCount = other.emptyCount;
+        maxExponent = other.maxExponent;
+        maxDirty = other.maxDirty;
+        version++;
     }
     /************************************************************/
     /* HasEmpty Method */
     public boolean hasEmpty()
     {
-        // Each cell on our board is either null or occupied by a Tile.
+        // Each cell on our board is either empty or occupied by a Tile.
         // Write a function public boolean hasEmpty() that checks if
-        // there are any empty cells (i.e., nulls) left on the board.
-        for(int row = 0;row < boardSize; row++){
-            for(int col = 0; col < boardSize; col++){
-                if(board.get(row).get(col) == null){//checks every row and col to see if tile is empty
-                    return true;
-                }
+        // there are any empty cells left on the board.
+        //the empty cells are counted as tiles come and go, so there is nothing to scan
+        return getEmptyCount() > 0;
+    }
+    /************************************************************/
+    /* Empty Cell Methods */
+    /**
+     * Returns the number of empty cells on the board without scanning it.
+     *
+     * @return int      The number of empty cells
+     */
+    public int getEmptyCount()
+    {
+        if(packed){
+            return BitBoard.countEmpty(packedCells);
+        }
+        return emptyCount;
+    }
+
+    /**
+     * Returns the cell index of one of the empty cells. Every number between 0 and
+     * getEmptyCount() - 1 picks a different empty cell, so a single random draw
+     * is enough to choose one.
+     *
+     * @param n         A number between 0 and getEmptyCount() - 1
+     * @return int      A row-major cell index (row * boardSize + col) of an empty cell
+     */
+    public int getEmptyCell(int n)
+    {
+        if(n < 0 || n >= getEmptyCount()){
+            throw new IllegalArgumentException();
+        }
+        if(packed){
+            //drop the lowest empty cells from the mask until the n-th one is at the bottom
+            long mask = BitBoard.emptyMask(packedCells);
+            for(int i = 0; i < n; i++){
+                mask &= mask - 1;
             }
+            return Long.numberOfTrailingZeros(mask) / 4;
         }
-        return false;
+        return emptyCells[n];
     }
     /************************************************************/
     /* getTile Method */
+    /**
+     * Returns the tile at a position. Cells only hold exponents, so this is the shared
+     * Tile.of tile for the value. Tiles cannot be changed; use setCell, setExponent or
+     * setTile to change a cell.
+     *
+     * @param row       A row on the board
+     * @param col       A column on the board
+     * @return Tile     The tile in the cell, or null if the cell is empty
+     */
     public Tile getTile(int row, int col)
     {
         //This function returns the Tile from the provided spot.
         // Throw a new IllegalArgumentException() if the provided
         // row or col aren't within the boundaries of the board.
-        if(row > boardSize || col > boardSize){
-            //throw exception if the row or col are out of boundaries
-            throw new IllegalArgumentException();
-        }
-        //return the tile at the given row and col
-        return board.get(row).get(col);
-
+        int exponent = getExponent(row, col);
+        return exponent == 0 ? null : Tile.of(exponent);
     }
     /************************************************************/
     /* setTile Method */
@@ -87,12 +229,8 @@ public class Board {
         // set the Tile passed in to the position indicated by the parameters.
         // Again, throw a new IllegalArgumentException() if the values are
         // invalid for rows or columns.
-        if(row > boardSize || col > boardSize){
-            //throw exception if the row or col are out of boundaries
-            throw new IllegalArgumentException();
-        }
-        //sets col in given row to t
-        board.get(row).set(col,t);
+        //store the exponent of the tile value, or 0 for an empty cell
+        setExponent(row, col, (t == null) ? 0 : t.getExponent());
     }
     /************************************************************/
     /* getValue Method */
@@ -101,31 +239,308 @@ public class Board {
         // get the value at a particular position. If there is no Tile
         // at that position return -1. As always, check the values for
         // row and col and throw a new IllegalArgumentException() if necessary.
-        if(row > boardSize || col > boardSize){
-            //throw exception if the row or col are out of boundaries
+        int exponent = getExponent(row, col);
+        return exponent == 0 ? -1 : 1 << exponent;
+    }
+    /************************************************************/
+    /* Exponent Methods */
+    /**
+     * Returns the log2 exponent of the tile at a position.
+     *
+     * @param row       A row on the board
+     * @param col       A column on the board
+     * @return int      The exponent of the tile value (1 for 2, 2 for 4, ...), or 0 if the cell is empty
+     */
+    public int getExponent(int row, int col)
+    {
+        return getCell(index(row, col));
+    }
+
+    /**
+     * Sets the tile at a position from its log2 exponent.
+     *
+     * @param row       A row on the board
+     * @param col       A column on the board
+     * @param exponent  The exponent of the tile value, or 0 to empty the cell
+     */
+    public void setExponent(int row, int col, int exponent)
+    {
+        setCell(index(row, col), exponent);
+    }
+
+    /**
+     * Returns the exponent at a row-major cell index (row * boardSize + col).
+     *
+     * @param index     A cell index between 0 and boardSize * boardSize - 1
+     * @return int      The exponent of the tile value, or 0 if the cell is empty
+     */
+    public int getCell(int index)
+    {
+        if(packed){
+            return (int) (packedCells >>> (4 * index)) & 0xF;
+        }
+        return cells[index];
+    }
+
+    /**
+     * Sets the exponent at a row-major cell index (row * boardSize + col).
+     *
+     * @param index     A cell index between 0 and boardSize * boardSize - 1
+     * @param exponent  The exponent of the tile value, or 0 to empty the cell
+     */
+    public void setCell(int index, int exponent)
+    {
+        if(packed){
+            setPackedCells(BitBoard.set(packedCells, index / BitBoard.SIZE, index % BitBoard.SIZE, exponent));
+            return;
+        }
+        if(exponent < 0 || exponent > Byte.MAX_VALUE){
             throw new IllegalArgumentException();
         }
-        //store the tile at given row col as t
-        Tile t = board.get(row).get(col);
-        if(t == null){
-            return -1;
-        }else{
-            //return the value of the tile
-            return (int)t.getValue();
+        if(cells[index] == exponent){
+            return;
+        }
+        version++;
+        if(exponent >= maxExponent){
+            maxExponent = exponent;
+            maxDirty = false;
+        } else if(cells[index] == maxExponent){
+            maxDirty = true;
+        }
+        if(cells[index] == 0 && exponent != 0){
+            //the cell is being filled, so move the last empty cell into its slot
+            int slot = emptySlot[index];
+            byte last = emptyCells[--emptyCount];
+            emptyCells[slot] = last;
+            emptySlot[last] = (byte) slot;
+        } else if(cells[index] != 0 && exponent == 0){
+            //the cell is being emptied, so add it to the end of the empty cells
+            emptyCells[emptyCount] = (byte) index;
+            emptySlot[index] = (byte) emptyCount++;
         }
+        cells[index] = (byte) exponent;
+    }
+
+    /************************************************************/
+    /* Status Methods */
+    /**
+     * Returns the largest exponent on the board.
+     *
+     * @return int      The exponent of the largest tile, or 0 if the board is empty
+     */
+    public int getMaxExponent()
+    {
+        if(packed){
+            return BitBoard.maxExponent(packedCells);
+        }
+        if(maxDirty){
+            //the largest tile was removed, so look for the new largest one
+            maxExponent = 0;
+            for(int i = 0; i < cells.length; i++){
+                maxExponent = Math.max(maxExponent, cells[i]);
+            }
+            maxDirty = false;
+        }
+        return maxExponent;
+    }
+
+    /**
+     * Returns a counter that changes every time a cell of the board changes.
+     *
+     * @return int      The modification count of the board
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /************************************************************/
+    /* Hashing Methods */
+    /**
+     * Returns the Zobrist hash of the tiles on the board. Unpacked boards work it out
+     * again only if a cell changed since the last call; packed boards work it out from
+     * their 16 cells. Boards with the same tiles have the same hash whatever their storage.
+     *
+     * @return long     The 64 bit hash of the board
+     */
+    public long getZobristKey()
+    {
+        if(packed){
+            long hash = 0;
+            for(int i = 0; i < BitBoard.CELLS; i++){
+                hash ^= ZOBRIST[i * ZOBRIST_EXPONENTS + ((int) (packedCells >>> (4 * i)) & 0xF)];
+            }
+            return hash;
+        }
+        updateHashes();
+        return hashes[0];
+    }
+
+    /**
+     * Returns a key that is the same for all 8 rotations/reflections of the board, so
+     * positions that only differ by symmetry can share a cache entry. On a packed board
+     * the key is the smallest symmetric packed board (see BitBoard.canonical), which is
+     * exact; on other boards it is the smallest of the 8 symmetric Zobrist hashes.
+     *
+     * @return long     The symmetry-independent key of the board
+     */
+    public long getCanonicalKey()
+    {
+        if(packed){
+            return BitBoard.canonical(packedCells);
+        }
+        updateHashes();
+        long key = hashes[0];
+        for(int s = 1; s < SYMMETRY_COUNT; s++){
+            key = Math.min(key, hashes[s]);
+        }
+        return key;
+    }
+
+    //works out the hash of every symmetry of an unpacked board if a cell changed since the last time
+    private void updateHashes()
+    {
+        if(hashedVersion == version){
+            return;
+        }
+        Arrays.fill(hashes, 0);
+        for(int index = 0; index < cells.length; index++){
+            if(cells[index] != 0){
+                for(int s = 0; s < SYMMETRY_COUNT; s++){
+                    hashes[s] ^= ZOBRIST[symmetries[s][index] * ZOBRIST_EXPONENTS + cells[index]];
+                }
+            }
+        }
+        hashedVersion = version;
+    }
+
+    /**
+     * Checks if another board has the same size and the same tiles in the same cells,
+     * whether or not either one is packed. Boards can change, so one that is used as a
+     * key in a hash map must not be moved while it is in there.
+     *
+     * @param o         The object to compare with
+     * @return boolean  True if o is a board with the same tiles
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof Board)){
+            return false;
+        }
+        Board other = (Board) o;
+        if(other.boardSize != boardSize){
+            return false;
+        }
+        if(packed && other.packed){
+            return packedCells == other.packedCells;
+        }
+        if(!packed && !other.packed){
+            return Arrays.equals(cells, other.cells);
+        }
+        for(int i = 0; i < boardSize * boardSize; i++){
+            if(getCell(i) != other.getCell(i)){
+                return false;
+            }
+        }
+        return true;
+    }
 
+    /**
+     * Returns a hash code that matches equals, taken from the Zobrist hash.
+     *
+     * @return int      The hash code of the board
+     */
+    @Override
+    public int hashCode()
+    {
+        long hash = getZobristKey();
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    //turns a row and col into a cell index, checking that both are on the board
+    private int index(int row, int col)
+    {
+        if(row < 0 || row >= boardSize || col < 0 || col >= boardSize){
+            //throw exception if the row or col are out of boundaries
+            throw new IllegalArgumentException();
+        }
+        return row * boardSize + col;
     }
     //getters and setters for boardSize
     public int getBoardSize() {
         return boardSize;
     }
 
+    /**
+     * Changes the size of the board. The cells are laid out for one size, so the board
+     * is emptied and starts over with unpacked cells of the new size.
+     *
+     * @param boardSize     The new size, between 4 and 10
+     */
     public void setBoardSize(int boardSize) {
-        this.boardSize = boardSize;
+        if (boardSize > 10 || boardSize < 4) {
+            throw new IllegalArgumentException();
+        }
+        allocate(boardSize);
+        packed = false;
+        packedCells = 0;
+        maxExponent = 0;
+        maxDirty = false;
+        version++;
+    }
+
+    public List<List<Tile>> printBoard() {
+        //build the nested list view from the cells
+        List<List<Tile>> rows = new ArrayList<List<Tile>>(boardSize);
+        for(int row = 0; row < boardSize; row++){
+            rows.add(new ArrayList<Tile>(boardSize));
+            for(int col = 0; col < boardSize; col++){
+                rows.get(row).add(getTile(row, col));
+            }
+        }
+        return rows;
     }
 
-    public LinkedList printBoard() {
-        return this.board;
+    /************************************************************/
+    /* Packed Board Methods */
+    /**
+     * Checks if the cells are packed into a single long (4x4 boards only).
+     *
+     * @return boolean  True if the packed storage is used
+     */
+    public boolean isPacked() {
+        return packed;
+    }
+
+    /**
+     * Returns the packed cells of a 4x4 board, laid out as described in BitBoard.
+     *
+     * @return long     The packed cells
+     */
+    public long getPackedCells() {
+        if(!packed){
+            throw new IllegalStateException();
+        }
+        return packedCells;
+    }
+
+    /**
+     * Replaces all the cells of a packed 4x4 board at once.
+     *
+     * @param packedCells   The new packed cells
+     */
+    public void setPackedCells(long packedCells) {
+        if(!packed){
+            throw new IllegalStateException();
+        }
+        if(this.packedCells != packedCells){
+            this.packedCells = packedCells;
+            version++;
+        }
     }
 } // End of Board class
 
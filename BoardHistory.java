@@ -0,0 +1,133 @@
+/**
+ * BoardHistory is a bounded stack of board snapshots used for undo and redo. Snapshots
+ * are kept in primitive ring buffers, a long per packed 4x4 board or a byte per cell
+ * otherwise, plus the score at the time. Once the history is full the oldest snapshot
+ * is overwritten, so a long game never takes more than capacity snapshots of memory,
+ * and pushing or popping a snapshot only copies the cells of one board.
+ */
+public class BoardHistory {
+    /*************************************************************************/
+    /* Variables */
+    private int capacity;
+    private int boardSize; // Size of the boards in the buffers, 0 before the first push
+    private boolean packed;
+    private long[] packedCells; // One packed board per slot when packed
+    private byte[] cells; // boardSize * boardSize exponents per slot when not packed
+    private int[] scores;
+    private int top; // Slot the next push writes to
+    private int size;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates an empty history.
+     *
+     * @param capacity      The most snapshots kept before the oldest is dropped
+     */
+    public BoardHistory(int capacity){
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        this.scores = new int[capacity];
+    }
+
+    /*************************************************************************/
+    /* Push and Pop Methods */
+    /**
+     * This saves a snapshot of the board and score on top of the history, dropping the
+     * oldest one if the history is full. Pushing a board of another size or storage
+     * than the ones already saved clears the history first.
+     *
+     * @param board     The board to save
+     * @param score     The score to save with it
+     */
+    public void push(Board board, int score){
+        if (board.getBoardSize() != boardSize || board.isPacked() != packed) {
+            layout(board);
+        }
+        if (packed) {
+            packedCells[top] = board.getPackedCells();
+        } else {
+            int cellCount = boardSize * boardSize;
+            for (int i = 0, at = top * cellCount; i < cellCount; i++, at++) {
+                cells[at] = (byte) board.getCell(i);
+            }
+        }
+        scores[top] = score;
+        top = (top + 1) % capacity;
+        size = Math.min(size + 1, capacity);
+    }
+
+    /**
+     * This removes the newest snapshot and copies it back into the board.
+     *
+     * @param board     The board to restore (same size and storage as the saved ones)
+     * @return int      The score saved with the snapshot
+     */
+    public int pop(Board board){
+        if (size == 0) {
+            throw new IllegalStateException("The history is empty");
+        }
+        if (board.getBoardSize() != boardSize || board.isPacked() != packed) {
+            throw new IllegalArgumentException();
+        }
+        top = (top + capacity - 1) % capacity;
+        size--;
+        if (packed) {
+            board.setPackedCells(packedCells[top]);
+        } else {
+            int cellCount = boardSize * boardSize;
+            for (int i = 0, at = top * cellCount; i < cellCount; i++, at++) {
+                board.setCell(i, cells[at]);
+            }
+        }
+        return scores[top];
+    }
+
+    // Sizes the buffers for boards like this one, dropping anything saved before
+    private void layout(Board board){
+        boardSize = board.getBoardSize();
+        packed = board.isPacked();
+        packedCells = packed ? new long[capacity] : null;
+        cells = packed ? null : new byte[capacity * boardSize * boardSize];
+        clear();
+    }
+
+    /**
+     * This removes every snapshot.
+     */
+    public void clear(){
+        top = 0;
+        size = 0;
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns the number of snapshots in the history.
+     *
+     * @return int      The number of snapshots that can be popped
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * This checks if there is nothing to pop.
+     *
+     * @return boolean  True if the history is empty
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * This returns the most snapshots the history keeps.
+     *
+     * @return int      The capacity of the history
+     */
+    public int getCapacity(){
+        return capacity;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * BoardSnapshot is an immutable copy of a game at one moment: its cells, score and
+ * status, plus what the move that led to it did, so the GUI thread can draw and
+ * animate it while GameLoop keeps changing the live game on its own thread.
+ */
+public final class BoardSnapshot {
+    /*************************************************************************/
+    /* Variables */
+    private final long sequence; // Goes up by one for every snapshot a GameLoop publishes
+    private final int boardSize;
+    private final byte[] cells; // Exponent of each cell, row-major
+    private final int score;
+    private final GameStatus status;
+    // What the last move did, null if the snapshot was not made by a tracked move
+    private final byte[] before;
+    private final int[] destinations;
+    private final boolean[] merged;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This copies the current state of a game.
+     *
+     * @param game          The game to copy (its status is checked, which may update it)
+     * @param sequence      The number of this snapshot
+     * @param before        The cells before the move that was just made, or null if there was no move
+     * @param result        The result of that move, with tile tracking, or null if there was no move
+     */
+    public BoardSnapshot(GameController game, long sequence, byte[] before, MoveResult result){
+        Board board = game.getBoard();
+        this.sequence = sequence;
+        this.boardSize = board.getBoardSize();
+        this.cells = new byte[boardSize * boardSize];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = (byte) board.getCell(i);
+        }
+        this.score = game.getScore();
+        this.status = game.getGameStatus();
+        if (before != null && result != null && result.isMoved() && result.isTracked()) {
+            this.before = before.clone();
+            this.destinations = new int[cells.length];
+            this.merged = new boolean[cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                destinations[i] = result.getDestination(i);
+                merged[i] = result.isMerged(i);
+            }
+        } else {
+            this.before = null;
+            this.destinations = null;
+            this.merged = null;
+        }
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns the number of this snapshot. Snapshots from one GameLoop are numbered
+     * one after another, so a gap means some were skipped.
+     *
+     * @return long     The sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * This returns the size of the board.
+     *
+     * @return int      The number of rows/columns
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * This returns the exponent at a row-major cell index (row * boardSize + col).
+     *
+     * @param index     A cell index between 0 and boardSize * boardSize - 1
+     * @return int      The exponent of the tile value, or 0 if the cell is empty
+     */
+    public int getCell(int index) {
+        return cells[index];
+    }
+
+    /**
+     * This returns the score of the game.
+     *
+     * @return int      The points earned so far
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * This returns the status of the game.
+     *
+     * @return GameStatus   Whether the game is won, lost or still in progress
+     */
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * This returns whether the snapshot was made right after a tracked move, so
+     * getBefore, getDestination and isMerged can be used to animate it.
+     *
+     * @return boolean  True if the move can be animated
+     */
+    public boolean hasMove() {
+        return destinations != null;
+    }
+
+    /**
+     * This returns the exponent a cell held before the move.
+     *
+     * @param index     A cell index between 0 and boardSize * boardSize - 1
+     * @return int      The exponent before the move, or 0 if the cell was empty
+     */
+    public int getBefore(int index) {
+        return before[index];
+    }
+
+    /**
+     * This returns the cell a tile slid to in the move.
+     *
+     * @param index     The cell index of the tile before the move
+     * @return int      The cell index after the move, or -1 if the cell was empty
+     */
+    public int getDestination(int index) {
+        return destinations[index];
+    }
+
+    /**
+     * This returns whether a cell holds a tile made by merging two tiles in the move.
+     *
+     * @param index     A cell index after the move
+     * @return boolean  True if two tiles merged into this cell
+     */
+    public boolean isMerged(int index) {
+        return merged[index];
+    }
+}
@@ -0,0 +1,285 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * BoardView draws snapshots of a game's board in a single component. Each tile value
+ * is drawn once into a cached image the first time it shows up, and painting the board
+ * is just copying those images into place. show() compares the new snapshot with what
+ * is on screen and only repaints the cells that changed, so a move on a 10x10 board
+ * costs no more than the cells it touched.
+ *
+ * Moves can also be animated: a Swing Timer repaints about 60 times a second while the
+ * tiles slide from where they were to where the snapshot says they went, then merged
+ * tiles pulse and the new tile grows in. Positions come from the time since the move
+ * started, so a late frame never slows the animation down. A snapshot that arrives
+ * while another is still animating snaps the old one to its end first, so the view
+ * always catches up with the game. A message such as a win or loss can be laid over
+ * the board without stopping input.
+ */
+public class BoardView extends JComponent {
+    /*************************************************************************/
+    /* Variables */
+    private static final long serialVersionUID = 1L;
+    private static final int CELL_SIZE = 100; // Width and height of a tile in pixels
+    private static final int GAP = 2; // Space between tiles
+    private static final int BORDER = 2; // Width of the line around each tile
+    private static final int MAX_FONT_SIZE = 50;
+    private static final int FRAME_MILLIS = 16; // About 60 frames a second
+    private static final long SLIDE_NANOS = 100000000L; // Time the tiles take to slide
+    private static final long POP_NANOS = 80000000L; // Time merged and new tiles take to settle
+    // Tile colors by exponent; bigger tiles reuse the last one
+    private static final Color[] COLORS = {
+            new Color(205, 193, 180), new Color(238, 228, 218), new Color(237, 224, 200),
+            new Color(242, 177, 121), new Color(245, 149, 99), new Color(246, 124, 95),
+            new Color(246, 94, 59), new Color(237, 207, 114), new Color(237, 204, 97),
+            new Color(237, 200, 80), new Color(237, 197, 63), new Color(237, 194, 46),
+            new Color(60, 58, 50)
+    };
+    private static final Color OVERLAY_COLOR = new Color(255, 255, 255, 170);
+    private static final Font OVERLAY_FONT = new Font("Serif", Font.BOLD, 40);
+    private static final Font OVERLAY_HINT_FONT = new Font("Serif", Font.PLAIN, 20);
+    private BoardSnapshot current; // The snapshot on screen
+    private String overlay; // Message drawn over the board, or null
+    private String overlayHint; // Smaller line under the message
+    private BufferedImage[] tileImages = new BufferedImage[Byte.MAX_VALUE + 1]; // Drawn the first time each exponent is shown
+    private byte[] shown; // Exponent of each cell as it was last painted, -1 if it needs painting
+    // State of the animation in progress, all sized once for the board
+    private Timer timer;
+    private boolean animating;
+    private long animationStart; // System.nanoTime() when the animation started
+    private boolean[] landed; // Cells some tile slid into, so any other tile there is new
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a view for boards of the given size, showing the first snapshot.
+     *
+     * @param snapshot      The board to show first
+     */
+    public BoardView(BoardSnapshot snapshot){
+        current = snapshot;
+        int size = snapshot.getBoardSize();
+        shown = new byte[size * size];
+        Arrays.fill(shown, (byte) -1);
+        landed = new boolean[size * size];
+        timer = new Timer(FRAME_MILLIS, e -> nextFrame());
+        timer.setCoalesce(true); // Drop ticks that pile up instead of running them back to back
+        setPreferredSize(new Dimension(size * (CELL_SIZE + GAP) - GAP, size * (CELL_SIZE + GAP) - GAP));
+        setOpaque(true);
+        setDoubleBuffered(true);
+    }
+
+    /*************************************************************************/
+    /* Show Methods */
+    /**
+     * This shows a new snapshot of the board. If it was made by a move that can be
+     * animated, the move is animated; otherwise only the cells that changed are repainted.
+     *
+     * @param snapshot  The board to show
+     * @param animate   False to skip the animation, for example when snapshots were skipped
+     */
+    public void show(BoardSnapshot snapshot, boolean animate){
+        finishAnimation();
+        current = snapshot;
+        if (animate && snapshot.hasMove()) {
+            Arrays.fill(landed, false);
+            for (int cell = 0; cell < landed.length; cell++) {
+                if (snapshot.getDestination(cell) >= 0) {
+                    landed[snapshot.getDestination(cell)] = true;
+                }
+            }
+            animating = true;
+            animationStart = System.nanoTime();
+            timer.start();
+            repaint();
+            return;
+        }
+        int size = snapshot.getBoardSize();
+        for (int cell = 0; cell < shown.length; cell++) {
+            int exponent = snapshot.getCell(cell);
+            if (shown[cell] != exponent) {
+                shown[cell] = (byte) exponent;
+                repaint(x(cell % size), y(cell / size), CELL_SIZE, CELL_SIZE);
+            }
+        }
+    }
+
+    /**
+     * This lays a message over the board, or takes it away.
+     *
+     * @param message   The message, or null for none
+     * @param hint      A smaller line under the message, or null
+     */
+    public void setOverlay(String message, String hint){
+        overlay = message;
+        overlayHint = hint;
+        repaint();
+    }
+
+    /*************************************************************************/
+    /* Animation Methods */
+    /**
+     * This ends the running animation, if any, and draws the board as it is.
+     */
+    public void finishAnimation(){
+        if (!animating) {
+            return;
+        }
+        timer.stop();
+        animating = false;
+        Arrays.fill(shown, (byte) -1);
+        repaint();
+    }
+
+    // Called by the timer: draws the next frame, or ends the animation once it has run its time
+    private void nextFrame(){
+        if (System.nanoTime() - animationStart >= SLIDE_NANOS + POP_NANOS) {
+            finishAnimation();
+        } else {
+            repaint();
+        }
+    }
+
+    /*************************************************************************/
+    /* Paint Method */
+    /**
+     * This draws the cells inside the area being repainted from the cached tile images.
+     *
+     * @param g     The graphics to draw with
+     */
+    @Override
+    protected void paintComponent(Graphics g){
+        long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+        BoardSnapshot board = current;
+        int size = board.getBoardSize();
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (animating) {
+            paintAnimation(g, board, size);
+        } else {
+            paintCells(g, board, size, clip);
+        }
+        if (overlay != null) {
+            paintOverlay(g);
+        }
+        if (GameMetrics.ENABLED) {
+            GameMetrics.recordRender(System.nanoTime() - start);
+        }
+    }
+
+    // Draws the cells that overlap the clip
+    private void paintCells(Graphics g, BoardSnapshot board, int size, Rectangle clip){
+        // Only the rows and columns that overlap the clip need drawing
+        int firstCol = Math.max(0, clip.x / (CELL_SIZE + GAP));
+        int lastCol = Math.min(size - 1, (clip.x + clip.width) / (CELL_SIZE + GAP));
+        int firstRow = Math.max(0, clip.y / (CELL_SIZE + GAP));
+        int lastRow = Math.min(size - 1, (clip.y + clip.height) / (CELL_SIZE + GAP));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                int exponent = board.getCell(row * size + col);
+                shown[row * size + col] = (byte) exponent;
+                g.drawImage(tileImage(exponent), x(col), y(row), null);
+            }
+        }
+    }
+
+    // Whitens the board and writes the overlay message across the middle
+    private void paintOverlay(Graphics g){
+        g.setColor(OVERLAY_COLOR);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        g.setColor(Color.DARK_GRAY);
+        g.setFont(OVERLAY_FONT);
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(overlay, (getWidth() - metrics.stringWidth(overlay)) / 2, getHeight() / 2);
+        if (overlayHint != null) {
+            g.setFont(OVERLAY_HINT_FONT);
+            metrics = g.getFontMetrics();
+            g.drawString(overlayHint, (getWidth() - metrics.stringWidth(overlayHint)) / 2,
+                    getHeight() / 2 + metrics.getHeight() + 10);
+        }
+    }
+
+    // Draws one frame of the animation: first the tiles sliding, then merged tiles
+    // pulsing and the new tile growing in on the board as it is now
+    private void paintAnimation(Graphics g, BoardSnapshot board, int size){
+        long elapsed = System.nanoTime() - animationStart;
+        BufferedImage empty = tileImage(0);
+        for (int cell = 0; cell < landed.length; cell++) {
+            g.drawImage(empty, x(cell % size), y(cell / size), null);
+        }
+        if (elapsed < SLIDE_NANOS) {
+            double t = (double) elapsed / SLIDE_NANOS;
+            t = t * (2 - t); // Ease out so the tiles slow down as they arrive
+            for (int cell = 0; cell < landed.length; cell++) {
+                int to = board.getDestination(cell);
+                if (to < 0) {
+                    continue;
+                }
+                int fromX = x(cell % size);
+                int fromY = y(cell / size);
+                g.drawImage(tileImage(board.getBefore(cell)), fromX + (int) Math.round((x(to % size) - fromX) * t),
+                        fromY + (int) Math.round((y(to / size) - fromY) * t), null);
+            }
+            return;
+        }
+        double t = Math.min(1.0, (double) (elapsed - SLIDE_NANOS) / POP_NANOS);
+        for (int cell = 0; cell < landed.length; cell++) {
+            int exponent = board.getCell(cell);
+            if (exponent == 0) {
+                continue;
+            }
+            double scale = 1.0;
+            if (board.isMerged(cell)) {
+                scale = 1.0 + 0.15 * Math.sin(Math.PI * t); // Grows a little and settles back
+            } else if (!landed[cell]) {
+                scale = t; // The new tile grows from nothing
+            }
+            int tileSize = (int) Math.round(CELL_SIZE * scale);
+            int inset = (CELL_SIZE - tileSize) / 2;
+            g.drawImage(tileImage(exponent), x(cell % size) + inset, y(cell / size) + inset, tileSize, tileSize, null);
+        }
+    }
+
+    // Returns the image of a tile, drawing it the first time it is needed
+    private BufferedImage tileImage(int exponent){
+        if (tileImages[exponent] == null) {
+            BufferedImage image = new BufferedImage(CELL_SIZE, CELL_SIZE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, CELL_SIZE, CELL_SIZE);
+            g.setColor(COLORS[Math.min(exponent, COLORS.length - 1)]);
+            g.fillRect(BORDER, BORDER, CELL_SIZE - 2 * BORDER, CELL_SIZE - 2 * BORDER);
+            // Empty cells show 0, like the text version
+            String text = (exponent == 0) ? "0" : String.valueOf(1L << Math.min(exponent, 62));
+            // Shrink the font until the number fits inside the tile
+            int fontSize = MAX_FONT_SIZE;
+            Font font = new Font("Serif", Font.PLAIN, fontSize);
+            while (fontSize > 8 && g.getFontMetrics(font).stringWidth(text) > CELL_SIZE - 4 * BORDER) {
+                fontSize -= 2;
+                font = new Font("Serif", Font.PLAIN, fontSize);
+            }
+            FontMetrics metrics = g.getFontMetrics(font);
+            g.setFont(font);
+            g.setColor(exponent <= 2 ? Color.DARK_GRAY : Color.WHITE);
+            g.drawString(text, (CELL_SIZE - metrics.stringWidth(text)) / 2,
+                    (CELL_SIZE - metrics.getHeight()) / 2 + metrics.getAscent());
+            g.dispose();
+            tileImages[exponent] = image;
+        }
+        return tileImages[exponent];
+    }
+
+    // Left edge of a column in pixels
+    private static int x(int col){
+        return col * (CELL_SIZE + GAP);
+    }
+
+    // Top edge of a row in pixels
+    private static int y(int row){
+        return row * (CELL_SIZE + GAP);
+    }
+}
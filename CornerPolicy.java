@@ -0,0 +1,28 @@
+/**
+ * CornerPolicy keeps the large tiles packed into the bottom left corner by always
+ * trying down, then left, then right, and only moving up when nothing else works.
+ */
+public class CornerPolicy implements MovePolicy {
+    /*************************************************************************/
+    /* Variables */
+    // The directions in the order they are tried
+    private static final Direction[] PREFERENCE = {Direction.DOWN, Direction.LEFT, Direction.RIGHT, Direction.UP};
+
+    /*************************************************************************/
+    /* Choose Move Method */
+    /**
+     * This picks the first direction in the preferred order that changes the board.
+     *
+     * @param game          The game to pick a move for
+     * @return Direction    The direction to move the tiles in
+     */
+    @Override
+    public Direction chooseMove(GameController game){
+        for (Direction direction : PREFERENCE) {
+            if (game.canMove(direction)) {
+                return direction;
+            }
+        }
+        return PREFERENCE[0];
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * The Direction enum holds the four ways the tiles of the 2048 board can be moved.
+ */
+
+/************************************************************/
+public enum Direction {
+    UP,
+    DOWN,
+    LEFT,
+    RIGHT;
+}
@@ -14,7 +14,23 @@ public class GameController {
     private Board board;
     private GameStatus gameStatus = GameStatus.IN_PROGRESS;
     private int winValue;
+    private int winExponent; // log2 of the win value, compared against the largest exponent on the board
     private Random rand;
+    private int score; // Points earned in the current game
+    private MoveResult lastMove = new MoveResult(); // Reused for every move so moving allocates nothing
+    // Running totals for the move in progress on an unpacked board
+    private boolean moved;
+    private int merges;
+    private int scoreDelta;
+    private int maxExponent;
+    // Board and version the last full-board loss check ran on
+    private Board lossCheckedBoard;
+    private int lossCheckedVersion;
+    // Boards before each move and boards that were undone, both null while undo is off
+    private BoardHistory undoHistory;
+    private BoardHistory redoHistory;
+    private boolean trackTiles; // True if moves record where each tile went, for animation
+    private int lastSpawnCell = -1; // Cell newTile filled since the last move, -1 if none
 
     /*************************************************************************/
     /* Constructors */
@@ -24,6 +40,7 @@ public class GameController {
     public GameController(){
         board = new Board();
         winValue = 2048; // Default win value
+        winExponent = Integer.numberOfTrailingZeros(winValue);
         rand = new Random(); // Rand will be used to randomly choose 2 or 4 for the starting tile value
         newTile(); // Will place a tile randomly for the start of the board
     }
@@ -35,12 +52,67 @@ public class GameController {
      * @param winValue      The number to reach in order to win the game - some power of 2.
      */
     public GameController(int boardSize, int winValue){
-            board = new Board(boardSize);
+            this(boardSize, winValue, new Random());
+    }
+
+    /**
+     * This parameterized constructor creates a board based on the given boardsize and win value,
+     * with tiles placed from a seeded random number generator. The same seed and the same
+     * moves always give the same game.
+     *
+     * @param boardSize     An integer between 4 and 10 for the size of the square board (# of rows/columns)
+     * @param winValue      The number to reach in order to win the game - some power of 2.
+     * @param seed          The seed for the random number generator used to place new tiles
+     */
+    public GameController(int boardSize, int winValue, long seed){
+            this(boardSize, winValue, new Random(seed));
+    }
+
+    /**
+     * This parameterized constructor creates a board based on the given boardsize and win value,
+     * using the given random number generator to place new tiles. Simulations give each
+     * thread its own generator this way.
+     *
+     * @param boardSize     An integer between 4 and 10 for the size of the square board (# of rows/columns)
+     * @param winValue      The number to reach in order to win the game - some power of 2.
+     * @param rand          The random number generator used to place new tiles
+     */
+    public GameController(int boardSize, int winValue, Random rand){
+            if (boardSize == BitBoard.SIZE && winValue <= (1 << BitBoard.MAX_EXPONENT)) {
+                board = new Board(boardSize, true); // Every tile of this game fits in the packed 4x4 engine
+            } else {
+                board = new Board(boardSize);
+            }
             this.winValue = winValue; // Isn't necessary to check here if winValue is a power of 2
                                      // because it is already checked at every input point
-            rand = new Random();
+            winExponent = Integer.numberOfTrailingZeros(winValue);
+            this.rand = rand;
             newTile();
     }
+    /*************************************************************************/
+    /* CopyFrom Method */
+    /**
+     * This copies the board, score, win value and status of another game into this one,
+     * so this controller can try out moves without touching the original game. The board
+     * is copied in place when the sizes match, so it allocates nothing after the first call.
+     * The random number generator is not copied.
+     *
+     * @param other     The game to copy
+     */
+    public void copyFrom(GameController other){
+        Board from = other.getBoard();
+        if (board.getBoardSize() == from.getBoardSize() && board.isPacked() == from.isPacked()) {
+            board.copyFrom(from);
+        } else {
+            board = new Board(from);
+        }
+        score = other.score;
+        winValue = other.winValue;
+        winExponent = other.winExponent;
+        gameStatus = other.gameStatus;
+        clearHistory(); // The saved boards belong to the game that was replaced
+    }
+
     /*************************************************************************/
     /* Getters and Setters */
 
@@ -61,21 +133,40 @@ public class GameController {
      */
     public void setBoard(Board board) {
         this.board = board;
+        clearHistory();
     }
 
     /**
      * This returns the value in the private GameStatus enum.
-     * It also checks for a loss and win to update the game status
-     * if necessary before returning it.
+     * It also checks for a win and loss to update the game status
+     * if necessary before returning it. Both checks use what the board
+     * already tracks, so this is cheap to call after every move.
      *
      * @return GameStatus   An enum for the game status (lost, won, or in-progress)
      */
     public GameStatus getGameStatus() {
-        checkLoss();
-        checkWin();
+        long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+        if (gameStatus == GameStatus.IN_PROGRESS) {
+            checkWin();
+        }
+        if (gameStatus == GameStatus.IN_PROGRESS) {
+            checkLoss();
+        }
+        if (GameMetrics.ENABLED) {
+            GameMetrics.recordStatusCheck(System.nanoTime() - start);
+        }
         return gameStatus;
     }
 
+    /**
+     * This returns the win value of the game.
+     *
+     * @return int      The number to reach in order to win the game - some power of 2.
+     */
+    public int getWinValue() {
+        return winValue;
+    }
+
     /**
      * This sets the value for the private GameStatus enum
      * from the passed in parameter.
@@ -93,27 +184,32 @@ public class GameController {
      * 2 or 4.
      */
     public void newTile(){
-        boolean notFound = true; // Used to check if an empty tile is found or not
-        int row; // For choosing a random row on the board
-        int col; // For choosing a random column on the board
-        Tile startTile;
-        // Uses rand to randomly choose either 2 or 4 for the starting tile
-        int startValue = rand.nextInt(2);
-        if(startValue == 1){
-            startTile = new Tile(2);
-        }else{
-            startTile = new Tile(4);
-        }
-        // Searches through random tiles to find an empty one
-        while(notFound){
-            row = rand.nextInt(board.getBoardSize()); // Chooses a random row for the new tile
-            col = rand.nextInt(board.getBoardSize()); // Chooses a random column for the new tile
-            if(board.getValue(row,col) == -1){ // Checks to see if tile is null
-                board.setTile(row,col,startTile); // Sets the tile if it is empty
-                notFound = false;
+        long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+        // The board keeps track of its empty cells, so one random draw picks the spot
+        int empty = board.getEmptyCount();
+        if (empty == 0) { // Nowhere to put the tile
+            if (GameMetrics.ENABLED) {
+                GameMetrics.recordNewTile(System.nanoTime() - start, false);
             }
+            return;
+        }
+        // Uses rand to randomly choose either 2 or 4 (exponent 1 or 2) for the new tile
+        int exponent = (rand.nextInt(2) == 1) ? 1 : 2;
+        lastSpawnCell = board.getEmptyCell(rand.nextInt(empty));
+        board.setCell(lastSpawnCell, exponent);
+        if (GameMetrics.ENABLED) {
+            GameMetrics.recordNewTile(System.nanoTime() - start, true);
         }
+    }
 
+    /**
+     * This returns the cell the last new tile was placed in, so the spawn can be saved
+     * along with the move before it (see SessionStore).
+     *
+     * @return int      The row-major cell index, or -1 if no tile was placed since the last move
+     */
+    public int getLastSpawnCell() {
+        return lastSpawnCell;
     }
 
     /*************************************************************************/
@@ -122,47 +218,182 @@ public class GameController {
      * This resets the board to set each tile to null.
      */
     public void reset(){
-        // Goes through every one of the tiles
-        for(int row = 0;row < board.getBoardSize(); row++){
-            for(int col = 0; col < board.getBoardSize(); col++){
-                // Set the tile to null
-                board.setTile(row,col,null);
+        if (board.isPacked()) {
+            board.setPackedCells(0); // Clears every cell at once
+        } else {
+            // Goes through every one of the tiles
+                for(int row = 0;row < board.getBoardSize(); row++){
+                for(int col = 0; col < board.getBoardSize(); col++){
+                    // Set the tile to null
+                    board.setTile(row,col,null);
+                }
             }
         }
         newTile(); // Creates a new starting tile after emptying the board
+        score = 0;
         gameStatus = GameStatus.IN_PROGRESS; // Resets the game status
+        clearHistory();
     }
 
     /*************************************************************************/
-    /* Check Win Method */
-    // Will cycle through each tile to check if the win value was achieved
-    private void checkWin(){
-        // Goes through every one of the tiles
-        for(int row = 0;row < board.getBoardSize(); row++){
-            for(int col = 0; col < board.getBoardSize(); col++){
-                if(board.getValue(row,col) == winValue){
-                    gameStatus = GameStatus.WON;
-                    // Leave the function because a win was already found
-                    return;
+    /* Tile Tracking Methods */
+    /**
+     * This turns tile tracking on or off. While it is on, the MoveResult of every move
+     * tells where each tile slid to and which tiles merged (see MoveResult.getDestination).
+     * It is off by default since simulated games have no use for it.
+     *
+     * @param trackTiles    True to track tiles
+     */
+    public void setTrackTiles(boolean trackTiles){
+        this.trackTiles = trackTiles;
+        if (!trackTiles) {
+            lastMove.track(0);
+        }
+    }
+
+    // Works out where every tile will go before the board is moved, one line at a time
+    private void trackMove(Direction direction){
+        int size = board.getBoardSize();
+        lastMove.track(size * size);
+        for (int line = 0; line < size; line++) {
+            switch (direction) {
+                case UP:
+                    trackLine(line, size);
+                    break;
+                case DOWN:
+                    trackLine((size - 1) * size + line, -size);
+                    break;
+                case LEFT:
+                    trackLine(line * size, 1);
+                    break;
+                default:
+                    trackLine(line * size + size - 1, -1);
+                    break;
+            }
+        }
+    }
+
+    // Follows the same steps as slideLine, recording the cell each tile lands on instead of moving it
+    private void trackLine(int start, int step){
+        int write = start;
+        int pending = 0;
+        int pendingCell = -1;
+        for (int i = 0, cell = start; i < board.getBoardSize(); i++, cell += step) {
+            int exponent = board.getCell(cell);
+            if (exponent == 0) {
+                continue;
+            }
+            if (exponent == pending) {
+                lastMove.trackTile(pendingCell, write, false);
+                lastMove.trackTile(cell, write, true);
+                write += step;
+                pending = 0;
+            } else {
+                if (pending != 0) {
+                    lastMove.trackTile(pendingCell, write, false);
+                    write += step;
                 }
+                pending = exponent;
+                pendingCell = cell;
             }
         }
+        if (pending != 0) {
+            lastMove.trackTile(pendingCell, write, false);
+        }
+    }
+
+    /*************************************************************************/
+    /* Undo and Redo Methods */
+    /**
+     * This turns undo on by keeping the board from before each of the last moves.
+     * Undo is off by default so simulated games do not pay for the snapshots.
+     *
+     * @param moves     How many moves can be undone (0 turns undo off)
+     */
+    public void setUndoLimit(int moves){
+        if (moves < 0) {
+            throw new IllegalArgumentException();
+        }
+        undoHistory = (moves == 0) ? null : new BoardHistory(moves);
+        redoHistory = (moves == 0) ? null : new BoardHistory(moves);
+    }
+
+    /**
+     * This takes back the last move, including the tile that spawned after it.
+     *
+     * @return boolean  True if there was a move to undo
+     */
+    public boolean undo(){
+        if (undoHistory == null || undoHistory.isEmpty()) {
+            return false;
+        }
+        redoHistory.push(board, score);
+        score = undoHistory.pop(board);
+        gameStatus = GameStatus.IN_PROGRESS; // Checked again from the restored board
+        return true;
+    }
+
+    /**
+     * This makes the last undone move again, with the same tile spawn as before.
+     *
+     * @return boolean  True if there was a move to redo
+     */
+    public boolean redo(){
+        if (redoHistory == null || redoHistory.isEmpty()) {
+            return false;
+        }
+        undoHistory.push(board, score);
+        score = redoHistory.pop(board);
+        gameStatus = GameStatus.IN_PROGRESS;
+        return true;
+    }
+
+    // Forgets every saved board
+    private void clearHistory(){
+        if (undoHistory != null) {
+            undoHistory.clear();
+            redoHistory.clear();
+        }
+    }
+
+    /*************************************************************************/
+    /* Check Win Method */
+    // Checks if the win value was achieved. The board keeps track of its largest tile,
+    // and the win value is a power of 2, so only the exponents need comparing.
+    private void checkWin(){
+        if (board.getMaxExponent() >= winExponent) {
+            gameStatus = GameStatus.WON;
+        }
     }
 
     /*************************************************************************/
     /* Check Loss Method */
-    // Will cycle through each tile to check if the game is a loss
+    // Checks if the game is a loss
     // (If there are no empty tiles or tiles with similar neighbors,
     // and the win value was not reached)
     private void checkLoss(){
+        // If there is an empty tile the game is not over, and the board counts those for us
+        if (board.getEmptyCount() > 0) {
+            return;
+        }
+        // A full board is only scanned once; the answer holds until one of its cells changes
+        if (lossCheckedBoard == board && lossCheckedVersion == board.getVersion()) {
+            return;
+        }
+        lossCheckedBoard = board;
+        lossCheckedVersion = board.getVersion();
+        if (GameMetrics.ENABLED) {
+            GameMetrics.recordLossScan();
+        }
+        if (board.isPacked()) {
+            if (!BitBoard.hasEqualNeighbors(board.getPackedCells())) {
+                gameStatus = GameStatus.LOST;
+            }
+            return;
+        }
         // Goes through every one of the tiles
         for(int row = 0;row < board.getBoardSize(); row++){
             for(int col = 0; col < board.getBoardSize(); col++){
-                // Check to see if there is an empty tile
-                // If there is then we can return because the game is not over
-                if(board.getValue(row,col) == -1){
-                    return;
-                }
                 // If there is a similar neighbor than the game is still in progress, so we can return
                 if(findSimilarNeighbors(row,col) == true){
                     return;
@@ -208,178 +439,270 @@ public class GameController {
     }
 
     /*************************************************************************/
-    /* Recursing Methods */
+    /* Move Methods */
     /**
-     * This allows for making a left move on the board by
-     * collapsing the row and combining similar tiles.
+     * This slides every tile on the board in the given direction, combining similar
+     * tiles once per move. Each row (or column) is handled in a single pass.
+     * The returned MoveResult is reused by this controller and is overwritten by the next move.
      *
-     * @param row   A row on the square board (some integer between 4 and 10)
+     * @param direction     The direction to move the tiles in
+     * @return MoveResult   What the move did, including whether anything moved at all
      */
-    public void recurseLeft(int row){
-        // Base case for when we reach the end of the row
-        if(row == board.getBoardSize()){
-            return;
+    public MoveResult move(Direction direction){
+        long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+        lastSpawnCell = -1;
+        // Only moves that change the board can be undone, and they clear the redo history
+        boolean record = undoHistory != null && canMove(direction);
+        if (record) {
+            undoHistory.push(board, score);
+            redoHistory.clear();
         }
-        // Goes through every column
-        for(int col = 0;col < board.getBoardSize(); ++col) {
-            // If the previous tile is null then move
-            // the current tile and set current to null
-            if (board.getValue(col, row - 1) == -1) {
-                // Only want to move the tile if the current tile isn't null
-                if(board.getValue(col,row) != -1) {
-                    board.setTile(col, row - 1, board.getTile(col, row));
-                    board.setTile(col, row, null);
-                    // Recurse the previous col in case there are any new moves
-                    // As long as it's not in the first col
-                    if (row > 1) {
-                        recurseLeft(row - 1);
-                    }
-                }
+        if (trackTiles) {
+            trackMove(direction);
+        }
+        if (board.isPacked()) {
+            movePacked(direction);
+        } else {
+            moveFlat(direction);
+        }
+        score += lastMove.getScoreDelta();
+        if (GameMetrics.ENABLED) {
+            GameMetrics.recordMove(System.nanoTime() - start, lastMove);
+        }
+        return lastMove;
+    }
+
+    // Moves a packed 4x4 board using the precomputed tables in BitBoard
+    private void movePacked(Direction direction){
+        long before = board.getPackedCells();
+        long after;
+        int scoreDelta;
+        switch (direction) {
+            case UP:
+                after = BitBoard.moveUp(before);
+                scoreDelta = BitBoard.scoreUp(before);
+                break;
+            case DOWN:
+                after = BitBoard.moveDown(before);
+                scoreDelta = BitBoard.scoreDown(before);
+                break;
+            case LEFT:
+                after = BitBoard.moveLeft(before);
+                scoreDelta = BitBoard.scoreLeft(before);
+                break;
+            default:
+                after = BitBoard.moveRight(before);
+                scoreDelta = BitBoard.scoreRight(before);
+                break;
+        }
+        board.setPackedCells(after);
+        // Every merge turns two tiles into one, so it leaves one more empty cell behind
+        int merges = BitBoard.countEmpty(after) - BitBoard.countEmpty(before);
+        int max = BitBoard.maxExponent(after);
+        lastMove.set(after != before, merges, scoreDelta, max == 0 ? 0 : 1 << max);
+    }
+
+    // Moves an unpacked board one line at a time
+    private void moveFlat(Direction direction){
+        int size = board.getBoardSize();
+        moved = false;
+        merges = 0;
+        scoreDelta = 0;
+        maxExponent = 0;
+        for (int line = 0; line < size; line++) {
+            // Each line starts at the edge the tiles slide towards and steps away from it
+            switch (direction) {
+                case UP:
+                    slideLine(line, size);
+                    break;
+                case DOWN:
+                    slideLine((size - 1) * size + line, -size);
+                    break;
+                case LEFT:
+                    slideLine(line * size, 1);
+                    break;
+                default:
+                    slideLine(line * size + size - 1, -1);
+                    break;
             }
-            // If the previous is the same, combine the two values and remove the current tile
-            if ((board.getValue(col, row) == board.getValue(col, row - 1)) && board.getValue(col,row) != -1) {
-                board.getTile(col,row - 1).setValue(board.getValue(col,row) * 2);
-                // Set the current tile to null
-                board.setTile(col, row, null);
-                // Recurse the previous col in case there are any new moves
-                // As long as it's not in the first col
-                if(row > 1) {
-                    recurseLeft(row - 1);
+        }
+        lastMove.set(moved, merges, scoreDelta, maxExponent == 0 ? 0 : 1 << maxExponent);
+    }
+
+    // Slides one line towards its first cell in a single pass. Tiles are only ever
+    // written at or behind the cell being read, so the line can be updated in place.
+    private void slideLine(int start, int step){
+        int size = board.getBoardSize();
+        int write = start; // Next cell to fill
+        int pending = 0; // Exponent waiting to see if the next tile matches it
+        for (int i = 0, cell = start; i < size; i++, cell += step) {
+            int exponent = board.getCell(cell);
+            if (exponent == 0) {
+                continue;
+            }
+            if (exponent == pending) {
+                // Combine the two tiles into the next power of 2
+                writeCell(write, exponent + 1);
+                write += step;
+                pending = 0;
+                merges++;
+                scoreDelta += 1 << (exponent + 1);
+            } else {
+                if (pending != 0) {
+                    writeCell(write, pending);
+                    write += step;
                 }
+                pending = exponent;
             }
         }
-        // Move onto the next col if there were no changes in the current one
-        recurseLeft(row + 1);
+        if (pending != 0) {
+            writeCell(write, pending);
+            write += step;
+        }
+        // Empty whatever is left behind the last tile
+        for (int cell = write; cell != start + size * step; cell += step) {
+            writeCell(cell, 0);
+        }
+    }
+
+    // Writes one cell during a move, noting whether anything changed
+    private void writeCell(int cell, int exponent){
+        if (board.getCell(cell) != exponent) {
+            board.setCell(cell, exponent);
+            moved = true;
+        }
+        maxExponent = Math.max(maxExponent, exponent);
     }
 
     /**
-     * This allows for making a right move on the board by
-     * collapsing the row and combining similar tiles.
+     * This checks if a move in the given direction would change the board, without making it.
      *
-     * @param row   A row on the square board (some integer between 4 and 10)
+     * @param direction     The direction to check
+     * @return boolean      True if at least one tile would move or merge
      */
-    public void recurseRight(int row){
-        if(row < 0){
-            return;
+    public boolean canMove(Direction direction){
+        if (board.isPacked()) {
+            long cells = board.getPackedCells();
+            switch (direction) {
+                case UP:
+                    return BitBoard.canMoveUp(cells);
+                case DOWN:
+                    return BitBoard.canMoveDown(cells);
+                case LEFT:
+                    return BitBoard.canMoveLeft(cells);
+                default:
+                    return BitBoard.canMoveRight(cells);
+            }
         }
-        //goes through every column
-        //starting at the second to last col
-        for(int col = board.getBoardSize() - 1;col >= 0; --col) {
-            //if the next tile is null then move
-            // the current tile and set current to null
-            if (board.getValue(col, row + 1) == -1) {
-                //only want to move the tile if the current tile isn't null
-                if(board.getValue(col,row) != -1) {
-                    board.setTile(col, row + 1, board.getTile(col, row));
-                    board.setTile(col, row, null);
-                    //recurse the previous col incase there is any new moves
-                    //as long as the col is not the last one
-                    if(row < board.getBoardSize() - 2) {
-                        recurseRight(row + 1);
-                    }
-                }
+        int size = board.getBoardSize();
+        for (int line = 0; line < size; line++) {
+            boolean lineMoves;
+            switch (direction) {
+                case UP:
+                    lineMoves = lineCanMove(line, size);
+                    break;
+                case DOWN:
+                    lineMoves = lineCanMove((size - 1) * size + line, -size);
+                    break;
+                case LEFT:
+                    lineMoves = lineCanMove(line * size, 1);
+                    break;
+                default:
+                    lineMoves = lineCanMove(line * size + size - 1, -1);
+                    break;
             }
-            //if the previous is the same, combine the two values and remove the current tile
-            if (board.getValue(col, row) == board.getValue(col, row + 1) && board.getValue(col,row) != -1) {
-                board.getTile(col,row + 1).setValue(board.getValue(col,row ) * 2);
-                //set the current tile to null
-                board.setTile(col, row, null);
-                //recurse the previous col incase there is any new moves
-                //as long as the col is not the last one
-                if(row < board.getBoardSize() - 2) {
-                    recurseRight(row + 1);
-                }
+            if (lineMoves) {
+                return true;
             }
         }
-        //move onto the next col if there were no changes in the current one
-        recurseRight(row - 1);
+        return false;
+    }
+
+    // A line can move if a tile sits behind an empty cell or two tiles next to each other match
+    private boolean lineCanMove(int start, int step){
+        boolean gap = false;
+        int previous = 0;
+        for (int i = 0, cell = start; i < board.getBoardSize(); i++, cell += step) {
+            int exponent = board.getCell(cell);
+            if (exponent == 0) {
+                gap = true;
+            } else if (gap || exponent == previous) {
+                return true;
+            } else {
+                previous = exponent;
+            }
+        }
+        return false;
     }
 
     /**
-     * This allows for making an upwards move on the board by
-     * collapsing the column and combining similar tiles.
+     * This returns the total points earned in the current game.
      *
-     * @param col   A column on the square board (some integer between 4 and 10)
+     * @return int      The sum of the values of every merged tile since the last reset
      */
-    public void recurseUp(int col){
-        //base case for when we reach the end of the col
-        if(col == board.getBoardSize()){
-            return;
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * This sets the points earned in the current game, for example when a saved game is loaded.
+     *
+     * @param score     The score to continue from
+     */
+    public void setScore(int score) {
+        if (score < 0) {
+            throw new IllegalArgumentException();
         }
-        //goes through every row
-        for(int row = 0;row < board.getBoardSize(); ++row) {
-            //if the previous tile is null then move
-            // the current tile and set current to null
-            if (board.getValue(col - 1, row) == -1) {
-                //only want to move the tile if the current tile isn't null
-                if(board.getValue(col,row) != -1) {
-                    board.setTile(col - 1, row, board.getTile(col, row));
-                    board.setTile(col, row, null);
-                    //recurse the previous col incase there is any new moves
-                    //as long as it's not in the first col
-                    if (col > 1) {
-                        recurseUp(col - 1);
-                    }
-                }
-            }
-            //if the previous is the same, combine the two values and remove the current tile
-            if ((board.getValue(col, row) == board.getValue(col - 1, row)) && board.getValue(col,row) != -1) {
-                board.getTile(col - 1,row).setValue(board.getValue(col,row) * 2);
-                //set the current tile to null
-                board.setTile(col, row, null);
-                //recurse the previous row incase there is any new moves
-                //as long as it's not in the first row
-                if(col > 1) {
-                    recurseUp(col - 1);
-                }
-            }
+        this.score = score;
+    }
+
+    /*************************************************************************/
+    /* Recursing Methods */
+    /**
+     * This allows for making a left move on the board by
+     * collapsing the row and combining similar tiles.
+     *
+     * @param row   Ignored; kept so older callers still compile
+     * @deprecated  Use move(Direction.LEFT), which also reports what the move did
+     */
+    @Deprecated
+    public void recurseLeft(int row){
+        move(Direction.LEFT);
+    }
 
+    /**
+     * This allows for making a right move on the board by
+     * collapsing the row and combining similar tiles.
+     *
+     * @param row   Ignored; kept so older callers still compile
+     * @deprecated  Use move(Direction.RIGHT), which also reports what the move did
+     */
+    @Deprecated
+    public void recurseRight(int row){
+        move(Direction.RIGHT);
+    }
 
-        }
-        //move onto the next col if there were no changes in the current one
-        recurseUp(col + 1);
+    /**
+     * This allows for making an upwards move on the board by
+     * collapsing the column and combining similar tiles.
+     *
+     * @param col   Ignored; kept so older callers still compile
+     * @deprecated  Use move(Direction.UP), which also reports what the move did
+     */
+    @Deprecated
+    public void recurseUp(int col){
+        move(Direction.UP);
     }
 
     /**
      * This allows for making a downwards move on the board by
      * collapsing the column and combining similar tiles.
      *
-     * @param col   A column on the square board (some integer between 4 and 10)
+     * @param col   Ignored; kept so older callers still compile
+     * @deprecated  Use move(Direction.DOWN), which also reports what the move did
      */
+    @Deprecated
     public void recurseDown(int col){
-        //base case for when we reach the end of the col
-        if(col < 0){
-            return;
-        }
-        //goes through every row
-        for(int row = board.getBoardSize() - 1;row >= 0; --row) {
-            //if the previous tile is null then move
-            // the current tile and set current to null
-            if (board.getValue(col + 1, row) == -1) {
-                //only want to move the tile if the current tile isn't null
-                if(board.getValue(col,row) != -1) {
-                    board.setTile(col + 1, row, board.getTile(col, row));
-                    board.setTile(col, row, null);
-                    //recurse the previous col incase there is any new moves
-                    //as long as it's not in the first col
-                    if (col < board.getBoardSize() - 2) {
-                        recurseDown(col + 1);
-                    }
-                }
-            }
-            //if the previous is the same, combine the two values and remove the current tile
-            if ((board.getValue(col, row) == board.getValue(col + 1, row)) && board.getValue(col,row) != -1) {
-                board.getTile(col + 1,row).setValue(board.getValue(col,row) * 2);
-                //set the current tile to null
-                board.setTile(col, row, null);
-                //recurse the previous row incase there is any new moves
-                //as long as it's not in the first row
-                if(col < board.getBoardSize() - 2) {
-                    recurseDown(col + 1);
-                }
-            }
-        }
-        //move onto the next col if there were no changes in the current one
-        recurseDown(col - 1);
+        move(Direction.DOWN);
     }
 }
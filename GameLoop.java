@@ -0,0 +1,251 @@
+import javax.swing.SwingUtilities;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * GameLoop runs a game on its own thread so the GUI thread never waits on it. Input
+ * is put on a bounded queue and applied in order by the loop thread, which is the only
+ * thread that touches the GameController once the loop has started. After every
+ * command the loop publishes an immutable BoardSnapshot. If commands come in faster
+ * than the GUI draws, only the newest snapshot is handed over, so redraws are
+ * coalesced instead of piling up on the event queue.
+ */
+public class GameLoop {
+    /*************************************************************************/
+    /* Command Enum */
+    /**
+     * Command is one input for the game.
+     */
+    public enum Command {
+        UP, DOWN, LEFT, RIGHT, // Move the tiles
+        UNDO, REDO, RESET,
+        POLICY // Let the policy given to setPolicy make a move
+    }
+
+    /*************************************************************************/
+    /* Variables */
+    private static final int QUEUE_SIZE = 64; // Input beyond this is dropped until the loop catches up
+    private GameController game; // Only used by the loop thread after start
+    private BlockingQueue<Command> commands = new ArrayBlockingQueue<Command>(QUEUE_SIZE);
+    private Consumer<BoardSnapshot> listener; // Called on the event dispatch thread
+    private AtomicReference<BoardSnapshot> latest = new AtomicReference<BoardSnapshot>();
+    private AtomicBoolean publishPending = new AtomicBoolean(); // True while a hand-over is waiting on the event queue
+    private AtomicBoolean resetPending = new AtomicBoolean(); // True while a RESET is queued, so repeats are dropped
+    private volatile MovePolicy policy;
+    private volatile boolean running;
+    private Thread thread;
+    private long sequence;
+    private byte[] before; // Cells before the move being made
+    private SessionStore store; // Saves every change to the game, null if it is not saved
+    private long sessionId;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a loop for a game. Nothing runs until start is called.
+     *
+     * @param game          The game to run (do not use it from other threads after start)
+     * @param listener      Gets every snapshot the GUI should show, on the event dispatch thread
+     */
+    public GameLoop(GameController game, Consumer<BoardSnapshot> listener){
+        this.game = game;
+        this.listener = listener;
+        game.setTrackTiles(true); // Snapshots carry the tile moves so the view can animate them
+        latest.set(new BoardSnapshot(game, sequence, null, null));
+    }
+
+    /*************************************************************************/
+    /* Control Methods */
+    /**
+     * This starts the loop thread.
+     */
+    public void start(){
+        running = true;
+        thread = new Thread(this::run, "game-loop");
+        thread.setDaemon(true); // Closing the window ends the program
+        thread.start();
+    }
+
+    /**
+     * This stops the loop thread once it finishes the command it is on.
+     */
+    public void stop(){
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * This queues a command for the loop thread. A RESET sent while another is still
+     * waiting is not queued again, since the game would only be reset twice.
+     *
+     * @param command   The command to run
+     * @return boolean  False if the queue was full and the command was dropped
+     */
+    public boolean submit(Command command){
+        if (command != Command.RESET) {
+            return commands.offer(command);
+        }
+        if (!resetPending.compareAndSet(false, true)) {
+            return true; // The waiting RESET covers this one
+        }
+        if (!commands.offer(command)) {
+            resetPending.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * This queues a move for the loop thread.
+     *
+     * @param direction     The direction to move the tiles in
+     * @return boolean      False if the queue was full and the move was dropped
+     */
+    public boolean submit(Direction direction){
+        switch (direction) {
+            case UP:
+                return submit(Command.UP);
+            case DOWN:
+                return submit(Command.DOWN);
+            case LEFT:
+                return submit(Command.LEFT);
+            default:
+                return submit(Command.RIGHT);
+        }
+    }
+
+    /**
+     * This sets the policy that picks the move for Command.POLICY. It is called on the
+     * loop thread, so it may look at the game it is given.
+     *
+     * @param policy    The policy, or null to ignore POLICY commands
+     */
+    public void setPolicy(MovePolicy policy){
+        this.policy = policy;
+    }
+
+    /**
+     * This saves every change the loop makes to the game in a store, without waiting for
+     * the disk. It must be called before start.
+     *
+     * @param store     The store to save to, or null to stop saving
+     * @param id        The session id to save the game under
+     */
+    public void setStore(SessionStore store, long id){
+        this.store = store;
+        this.sessionId = id;
+    }
+
+    /**
+     * This returns the newest snapshot of the game.
+     *
+     * @return BoardSnapshot    The state of the game after the last command
+     */
+    public BoardSnapshot getSnapshot(){
+        return latest.get();
+    }
+
+    /*************************************************************************/
+    /* Loop Methods */
+    // Takes commands off the queue until the loop is stopped
+    private void run(){
+        while (running) {
+            Command command;
+            try {
+                command = commands.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            apply(command);
+        }
+    }
+
+    // Runs one command and publishes the game if it changed
+    private void apply(Command command){
+        switch (command) {
+            case UNDO:
+                if (game.undo()) {
+                    save();
+                    publish(null);
+                }
+                return;
+            case REDO:
+                if (game.redo()) {
+                    save();
+                    publish(null);
+                }
+                return;
+            case RESET:
+                game.reset();
+                save();
+                publish(null);
+                resetPending.set(false);
+                return;
+            case POLICY:
+                MovePolicy current = policy;
+                if (current != null && game.getGameStatus() == GameStatus.IN_PROGRESS) {
+                    Direction direction = current.chooseMove(game);
+                    if (direction != null) {
+                        move(direction);
+                    }
+                }
+                return;
+            default:
+                move(Direction.valueOf(command.name()));
+        }
+    }
+
+    // Makes a move and adds a tile if it changed the board. A finished game ignores moves until it is reset.
+    private void move(Direction direction){
+        if (game.getGameStatus() != GameStatus.IN_PROGRESS) {
+            return;
+        }
+        Board board = game.getBoard();
+        int cells = board.getBoardSize() * board.getBoardSize();
+        if (before == null || before.length != cells) {
+            before = new byte[cells];
+        }
+        for (int i = 0; i < cells; i++) {
+            before[i] = (byte) board.getCell(i);
+        }
+        MoveResult result = game.move(direction);
+        if (!result.isMoved()) {
+            return;
+        }
+        // Always spawn after a move that changed the board, even one that wins, like the other front ends,
+        // so recorded games replay the same everywhere
+        game.newTile();
+        if (store != null) {
+            store.recordMove(sessionId, direction, game);
+        }
+        publish(result);
+    }
+
+    // Saves the whole game after anything other than a move
+    private void save(){
+        if (store != null) {
+            store.recordState(sessionId, game);
+        }
+    }
+
+    // Hands the newest snapshot to the GUI. Only one hand-over waits on the event queue
+    // at a time; it picks up whatever snapshot is newest when it runs.
+    private void publish(MoveResult result){
+        sequence++;
+        latest.set(new BoardSnapshot(game, sequence, (result == null) ? null : before, result));
+        if (!publishPending.getAndSet(true)) {
+            SwingUtilities.invokeLater(this::handOver);
+        }
+    }
+
+    // Runs on the event dispatch thread
+    private void handOver(){
+        publishPending.set(false);
+        listener.accept(latest.get());
+    }
+}
@@ -0,0 +1,309 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * GameMetrics counts what the game engine does and how long it takes: moves, merges,
+ * tile spawns, status checks and full-board loss scans, plus latency histograms for
+ * moves, newTile, getGameStatus and redraws of the GUI board. Recording only adds to
+ * LongAdders (one per histogram bucket too), so it takes no locks, allocates nothing
+ * once warm, and threads playing different games do not fight over one counter.
+ *
+ * Metrics are off unless the JVM is started with -Dgame.metrics=true. ENABLED is a
+ * constant, so with metrics off the JIT drops the recording code altogether. When on,
+ * the metrics are registered with JMX as game2048:type=GameMetrics (see GameMetricsMBean),
+ * and -Dgame.metrics.dumpSeconds=n also prints them to standard error every n seconds.
+ */
+public class GameMetrics implements GameMetricsMBean {
+    /*************************************************************************/
+    /* Variables */
+    public static final boolean ENABLED = Boolean.getBoolean("game.metrics");
+    private static final GameMetrics INSTANCE = new GameMetrics();
+    private static final String OBJECT_NAME = "game2048:type=GameMetrics";
+    private LongAdder moves = new LongAdder(); // Every call to move, including ones that change nothing
+    private LongAdder movesChanged = new LongAdder(); // Moves that changed the board
+    private LongAdder merges = new LongAdder();
+    private LongAdder spawns = new LongAdder();
+    private LongAdder spawnsSkipped = new LongAdder(); // newTile calls on a full board
+    private LongAdder statusChecks = new LongAdder();
+    private LongAdder lossScans = new LongAdder(); // Status checks that had to look at every cell of a full board
+    private Histogram moveNanos = new Histogram();
+    private Histogram newTileNanos = new Histogram();
+    private Histogram statusNanos = new Histogram();
+    private Histogram renderNanos = new Histogram();
+    private volatile long startNanos = System.nanoTime(); // When counting started or was last reset
+
+    static {
+        if (ENABLED) {
+            INSTANCE.register();
+        }
+    }
+
+    /*************************************************************************/
+    /* Histogram Class */
+    /**
+     * Histogram counts latencies in buckets by powers of two: bucket n holds times from
+     * 2^n to 2^(n+1) - 1 nanoseconds. That is coarse, but one add records a time. Each
+     * bucket is a LongAdder, since most times land in the same one or two buckets and a
+     * shared atomic slot there would be hit by every thread.
+     */
+    public static class Histogram {
+        private LongAdder[] buckets = new LongAdder[64];
+
+        /**
+         * This creates an empty histogram.
+         */
+        public Histogram(){
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * This records one time.
+         *
+         * @param nanos     The time in nanoseconds
+         */
+        public void record(long nanos){
+            buckets[63 - Long.numberOfLeadingZeros(Math.max(1, nanos))].increment();
+        }
+
+        /**
+         * This returns the number of times recorded.
+         *
+         * @return long     The count
+         */
+        public long getCount(){
+            long count = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                count += buckets[i].sum();
+            }
+            return count;
+        }
+
+        /**
+         * This returns the time under which a fraction of the recorded times fall, rounded
+         * up to the top of its bucket.
+         *
+         * @param fraction  Between 0 and 1, for example 0.99 for the 99th percentile
+         * @return long     The time in nanoseconds, or 0 if nothing was recorded
+         */
+        public long getPercentile(double fraction){
+            long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return (i == 63) ? Long.MAX_VALUE : (2L << i) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        // Sets every bucket back to 0; times recorded at the same moment may be lost
+        private void reset(){
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i].reset();
+            }
+        }
+    }
+
+    /*************************************************************************/
+    /* Record Methods */
+    // Called from the hot paths only when ENABLED is true
+
+    /**
+     * This records a move.
+     *
+     * @param nanos         How long the move took
+     * @param result        What the move did
+     */
+    public static void recordMove(long nanos, MoveResult result){
+        GameMetrics metrics = INSTANCE;
+        metrics.moves.increment();
+        if (result.isMoved()) {
+            metrics.movesChanged.increment();
+            metrics.merges.add(result.getMerges());
+        }
+        metrics.moveNanos.record(nanos);
+    }
+
+    /**
+     * This records a call to newTile.
+     *
+     * @param nanos         How long it took
+     * @param placed        False if the board was full and no tile was placed
+     */
+    public static void recordNewTile(long nanos, boolean placed){
+        if (placed) {
+            INSTANCE.spawns.increment();
+        } else {
+            INSTANCE.spawnsSkipped.increment();
+        }
+        INSTANCE.newTileNanos.record(nanos);
+    }
+
+    /**
+     * This records a call to getGameStatus.
+     *
+     * @param nanos         How long it took
+     */
+    public static void recordStatusCheck(long nanos){
+        INSTANCE.statusChecks.increment();
+        INSTANCE.statusNanos.record(nanos);
+    }
+
+    /**
+     * This records a loss check that scanned every cell of a full board.
+     */
+    public static void recordLossScan(){
+        INSTANCE.lossScans.increment();
+    }
+
+    /**
+     * This records a redraw of the board in the GUI.
+     *
+     * @param nanos         How long it took
+     */
+    public static void recordRender(long nanos){
+        INSTANCE.renderNanos.record(nanos);
+    }
+
+    /*************************************************************************/
+    /* Registration Methods */
+    /**
+     * This returns the metrics every game records to.
+     *
+     * @return GameMetrics  The metrics
+     */
+    public static GameMetrics getInstance(){
+        return INSTANCE;
+    }
+
+    // Registers the metrics with JMX and starts the periodic dump if one was asked for
+    private void register(){
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Could not register " + OBJECT_NAME + ": " + e.getMessage());
+        }
+        long dumpSeconds = Long.getLong("game.metrics.dumpSeconds", 0);
+        if (dumpSeconds > 0) {
+            ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "game-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumper.scheduleAtFixedRate(() -> System.err.println(dump()), dumpSeconds, dumpSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /*************************************************************************/
+    /* MBean Methods */
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public double getMovesPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return moves.sum() / Math.max(seconds, 1e-9);
+    }
+
+    @Override
+    public double getMergesPerMove() {
+        long changed = movesChanged.sum();
+        return (changed == 0) ? 0 : (double) merges.sum() / changed;
+    }
+
+    @Override
+    public long getSpawns() {
+        return spawns.sum();
+    }
+
+    @Override
+    public long getSpawnsSkipped() {
+        return spawnsSkipped.sum();
+    }
+
+    @Override
+    public long getStatusChecks() {
+        return statusChecks.sum();
+    }
+
+    @Override
+    public long getLossScans() {
+        return lossScans.sum();
+    }
+
+    @Override
+    public long getMoveP50Nanos() {
+        return moveNanos.getPercentile(0.50);
+    }
+
+    @Override
+    public long getMoveP99Nanos() {
+        return moveNanos.getPercentile(0.99);
+    }
+
+    @Override
+    public long getNewTileP99Nanos() {
+        return newTileNanos.getPercentile(0.99);
+    }
+
+    @Override
+    public long getStatusP99Nanos() {
+        return statusNanos.getPercentile(0.99);
+    }
+
+    @Override
+    public long getRenders() {
+        return renderNanos.getCount();
+    }
+
+    @Override
+    public long getRenderP50Nanos() {
+        return renderNanos.getPercentile(0.50);
+    }
+
+    @Override
+    public long getRenderP99Nanos() {
+        return renderNanos.getPercentile(0.99);
+    }
+
+    @Override
+    public void reset() {
+        moves.reset();
+        movesChanged.reset();
+        merges.reset();
+        spawns.reset();
+        spawnsSkipped.reset();
+        statusChecks.reset();
+        lossScans.reset();
+        moveNanos.reset();
+        newTileNanos.reset();
+        statusNanos.reset();
+        renderNanos.reset();
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public String dump() {
+        return String.format("moves %d (%.0f/sec, %.2f merges per move), spawns %d (%d skipped), "
+                        + "status checks %d (%d loss scans); p50/p99 ns: move %d/%d, newTile %d/%d, "
+                        + "status %d/%d, render %d/%d over %d renders",
+                getMoves(), getMovesPerSecond(), getMergesPerMove(), getSpawns(), getSpawnsSkipped(),
+                getStatusChecks(), getLossScans(), getMoveP50Nanos(), getMoveP99Nanos(),
+                newTileNanos.getPercentile(0.50), getNewTileP99Nanos(), statusNanos.getPercentile(0.50),
+                getStatusP99Nanos(), getRenderP50Nanos(), getRenderP99Nanos(), getRenders());
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * GameMetricsMBean is what GameMetrics shows through JMX (for example in JConsole or
+ * VisualVM). Latencies are rounded up to the next power of two nanoseconds.
+ */
+public interface GameMetricsMBean {
+    /**
+     * This returns the number of moves made, including moves that changed nothing.
+     *
+     * @return long     The number of moves
+     */
+    long getMoves();
+
+    /**
+     * This returns the moves made per second since the metrics started or were reset.
+     *
+     * @return double   The move rate
+     */
+    double getMovesPerSecond();
+
+    /**
+     * This returns the average number of merges in a move that changed the board.
+     *
+     * @return double   Merges per move
+     */
+    double getMergesPerMove();
+
+    /**
+     * This returns the number of tiles placed by newTile.
+     *
+     * @return long     The number of tiles spawned
+     */
+    long getSpawns();
+
+    /**
+     * This returns the number of newTile calls that found no empty cell. A spawn never
+     * needs a retry, since the empty cell is picked from the board's list of them.
+     *
+     * @return long     The number of skipped spawns
+     */
+    long getSpawnsSkipped();
+
+    /**
+     * This returns the number of getGameStatus calls.
+     *
+     * @return long     The number of status checks
+     */
+    long getStatusChecks();
+
+    /**
+     * This returns the number of status checks that scanned a full board for a possible merge.
+     *
+     * @return long     The number of full-board scans
+     */
+    long getLossScans();
+
+    /**
+     * This returns the median time of a move.
+     *
+     * @return long     Nanoseconds
+     */
+    long getMoveP50Nanos();
+
+    /**
+     * This returns the 99th percentile time of a move.
+     *
+     * @return long     Nanoseconds
+     */
+    long getMoveP99Nanos();
+
+    /**
+     * This returns the 99th percentile time of newTile.
+     *
+     * @return long     Nanoseconds
+     */
+    long getNewTileP99Nanos();
+
+    /**
+     * This returns the 99th percentile time of getGameStatus.
+     *
+     * @return long     Nanoseconds
+     */
+    long getStatusP99Nanos();
+
+    /**
+     * This returns the number of times the GUI board was redrawn.
+     *
+     * @return long     The number of redraws
+     */
+    long getRenders();
+
+    /**
+     * This returns the median time of a GUI board redraw.
+     *
+     * @return long     Nanoseconds
+     */
+    long getRenderP50Nanos();
+
+    /**
+     * This returns the 99th percentile time of a GUI board redraw.
+     *
+     * @return long     Nanoseconds
+     */
+    long getRenderP99Nanos();
+
+    /**
+     * This sets every metric back to 0.
+     */
+    void reset();
+
+    /**
+     * This returns every metric on one line of text.
+     *
+     * @return String   The metrics
+     */
+    String dump();
+}
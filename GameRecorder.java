@@ -0,0 +1,220 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * GameRecorder writes seeded games to a compact binary file so they can be replayed
+ * and checked later with GameReplayer. Since a game started from a seed spawns the
+ * same tiles for the same moves, only the moves need to be kept: 2 bits each, 4 to a
+ * byte. A file starts with a magic number and version, followed by one record per game:
+ *
+ *   boardSize (1 byte), winValue (4), seed (8), spawnRule (1), moveCount (4),
+ *   finalScore (4), then (moveCount + 3) / 4 bytes of moves, lowest bits first
+ *   (Direction ordinals)
+ *
+ * Only moves that changed the board are recorded, each followed by one spawn, which is
+ * how every game in this project is played. Tiles are placed by spawn rather than
+ * GameController.newTile, whose choice of empty cell follows however Board happens to
+ * keep its empty cells. The spawn rule (SPAWN_ROW_MAJOR) is written down here and in
+ * every record instead: from a java.util.Random made with the seed, nextInt(2) picks a
+ * 4 (0) or a 2 (1), then nextInt(empty) picks which empty cell gets it, counting them
+ * in row-major order. The game starts from an empty board and one spawn.
+ *
+ * Usage: java GameRecorder [file] [games] [boardSize] [winValue] [random|greedy|corner] [seed]
+ */
+public class GameRecorder implements AutoCloseable {
+    /*************************************************************************/
+    /* Variables */
+    public static final int MAGIC = 0x32303438; // "2048" at the start of a replay file
+    public static final int FILE_VERSION = 2;
+    public static final int HEADER_BYTES = 1 + 4 + 8 + 1 + 4 + 4; // Size of a record before its moves
+    public static final int SPAWN_ROW_MAJOR = 1; // The only spawn rule so far (see the class comment)
+    private static final int MAX_MOVES = 1000000; // Demo games longer than this are cut short
+    private DataOutputStream out;
+    private byte[] moves = new byte[256]; // Packed moves of the game being recorded, grown as needed
+    private int moveCount;
+    private int boardSize; // 0 while no game is being recorded
+    private int winValue;
+    private long seed;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a recorder that writes to a stream, starting with the file header.
+     *
+     * @param out           Where the records are written
+     * @throws IOException  If the header cannot be written
+     */
+    public GameRecorder(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(FILE_VERSION);
+    }
+
+    /**
+     * This creates a recorder that writes to a new file.
+     *
+     * @param path          The file to write
+     * @throws IOException  If the file cannot be created
+     */
+    public GameRecorder(String path) throws IOException {
+        this(new FileOutputStream(path));
+    }
+
+    /*************************************************************************/
+    /* Record Methods */
+    /**
+     * This starts recording a game. The game should be created with
+     * newGame(boardSize, winValue, new Random(seed)), that Random should place every
+     * tile with spawn, and the game should not be moved yet.
+     *
+     * @param boardSize     The size of the board
+     * @param winValue      The win value of the game
+     * @param seed          The seed the game was created with
+     */
+    public void startGame(int boardSize, int winValue, long seed){
+        if (boardSize < 4 || boardSize > 10) {
+            throw new IllegalArgumentException();
+        }
+        this.boardSize = boardSize;
+        this.winValue = winValue;
+        this.seed = seed;
+        moveCount = 0;
+    }
+
+    /**
+     * This records a move that changed the board.
+     *
+     * @param direction     The direction that was moved
+     */
+    public void recordMove(Direction direction){
+        if (boardSize == 0) {
+            throw new IllegalStateException("No game has been started");
+        }
+        int index = moveCount >>> 2;
+        if (index == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        int shift = (moveCount & 3) * 2;
+        moves[index] = (byte) ((shift == 0 ? 0 : moves[index]) | (direction.ordinal() << shift));
+        moveCount++;
+    }
+
+    /**
+     * This writes the record of the game being recorded.
+     *
+     * @param finalScore    The score at the end of the game, checked when it is replayed
+     * @throws IOException  If the record cannot be written
+     */
+    public void endGame(int finalScore) throws IOException {
+        if (boardSize == 0) {
+            throw new IllegalStateException("No game has been started");
+        }
+        out.writeByte(boardSize);
+        out.writeInt(winValue);
+        out.writeLong(seed);
+        out.writeByte(SPAWN_ROW_MAJOR);
+        out.writeInt(moveCount);
+        out.writeInt(finalScore);
+        out.write(moves, 0, (moveCount + 3) >>> 2);
+        boardSize = 0;
+    }
+
+    /*************************************************************************/
+    /* Spawn Methods */
+    /**
+     * This creates a game for recording or replaying: an empty board with one tile placed by spawn.
+     *
+     * @param boardSize     The size of the board
+     * @param winValue      The win value of the game
+     * @param rand          new Random(seed), used for every spawn of the game
+     * @return GameController   The new game
+     */
+    public static GameController newGame(int boardSize, int winValue, Random rand){
+        GameController game = new GameController(boardSize, winValue, new Random(0));
+        Board board = game.getBoard();
+        for (int i = 0; i < boardSize * boardSize; i++) {
+            board.setCell(i, 0); // Drop the tile the constructor placed
+        }
+        spawn(game, rand);
+        return game;
+    }
+
+    /**
+     * This places a 2 or a 4 the way recorded games do: picked from the empty cells in
+     * row-major order, so it does not depend on how the board keeps its empty cells.
+     *
+     * @param game      The game to add the tile to
+     * @param rand      The Random of the game
+     */
+    public static void spawn(GameController game, Random rand){
+        Board board = game.getBoard();
+        int empty = board.getEmptyCount();
+        if (empty == 0) {
+            return;
+        }
+        int exponent = (rand.nextInt(2) == 1) ? 1 : 2;
+        int n = rand.nextInt(empty);
+        for (int i = 0; ; i++) {
+            if (board.getCell(i) == 0 && n-- == 0) {
+                board.setCell(i, exponent);
+                return;
+            }
+        }
+    }
+
+    /**
+     * This flushes and closes the file.
+     *
+     * @throws IOException  If the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /*************************************************************************/
+    /* Main Method */
+    /**
+     * This main method plays seeded games with a move policy and records them.
+     *
+     * @param args      [file] [games] [boardSize] [winValue] [random|greedy|corner] [seed]
+     */
+    public static void main(String[] args) throws IOException {
+        String path = (args.length > 0) ? args[0] : "games.bin";
+        int games = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        int boardSize = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+        int winValue = (args.length > 3) ? Integer.parseInt(args[3]) : 2048;
+        String policy = (args.length > 4) ? args[4] : "corner";
+        long seed = (args.length > 5) ? Long.parseLong(args[5]) : System.nanoTime();
+        Random seeds = new Random(seed);
+        MovePolicy movePolicy = Simulator.newPolicy(policy, new Random(seed + 1));
+        long moves = 0;
+        long start = System.nanoTime();
+        try (GameRecorder recorder = new GameRecorder(path)) {
+            for (int i = 0; i < games; i++) {
+                long gameSeed = seeds.nextLong();
+                Random spawns = new Random(gameSeed);
+                GameController game = newGame(boardSize, winValue, spawns);
+                recorder.startGame(boardSize, winValue, gameSeed);
+                int gameMoves = 0;
+                while (game.getGameStatus() == GameStatus.IN_PROGRESS && gameMoves < MAX_MOVES) {
+                    Direction direction = movePolicy.chooseMove(game);
+                    if (game.move(direction).isMoved()) {
+                        recorder.recordMove(direction);
+                        spawn(game, spawns);
+                        gameMoves++;
+                    }
+                }
+                recorder.endGame(game.getScore());
+                moves += gameMoves;
+            }
+        }
+        System.out.printf("Recorded %d games (%d moves) to %s in %.1f s%n",
+                games, moves, path, (System.nanoTime() - start) / 1e9);
+    }
+}
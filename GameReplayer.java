@@ -0,0 +1,269 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * GameReplayer reads the files written by GameRecorder one record at a time and plays
+ * the games again to check them. A file can be read as a stream, or mapped into memory
+ * so records are read straight from the page cache without copying through a stream.
+ *
+ * Usage: java GameReplayer [file] [stream|map]
+ */
+public class GameReplayer implements AutoCloseable {
+    /*************************************************************************/
+    /* Variables */
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private DataInputStream in; // Set when streaming
+    private ByteBuffer mapped; // Set when the file is mapped
+    private byte[] moves = new byte[256]; // Packed moves of the current record, grown as needed
+    // Header of the current record
+    private int boardSize;
+    private int winValue;
+    private long seed;
+    private int spawnRule;
+    private int moveCount;
+    private int finalScore;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a replayer that streams records from an input stream.
+     *
+     * @param in            The stream to read
+     * @throws IOException  If the file header cannot be read or is wrong
+     */
+    public GameReplayer(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        checkHeader(this.in.readInt(), this.in.readInt());
+    }
+
+    /**
+     * This creates a replayer that reads records from a memory-mapped file
+     * (up to 2GB, the most a single mapping can hold).
+     *
+     * @param path          The file to map
+     * @throws IOException  If the file cannot be mapped or its header is wrong
+     */
+    public GameReplayer(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too big to map; stream it instead");
+            }
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (mapped.remaining() < 8) {
+            throw new IOException("Not a replay file: " + path);
+        }
+        checkHeader(mapped.getInt(), mapped.getInt());
+    }
+
+    // Checks the magic number and version at the start of the file
+    private static void checkHeader(int magic, int version) throws IOException {
+        if (magic != GameRecorder.MAGIC || version != GameRecorder.FILE_VERSION) {
+            throw new IOException("Not a replay file");
+        }
+    }
+
+    /*************************************************************************/
+    /* Read Methods */
+    /**
+     * This reads the next record, whose header is then available from the getters.
+     *
+     * @return boolean      False if there are no more records
+     * @throws IOException  If a record is cut short or cannot be read
+     */
+    public boolean next() throws IOException {
+        if (mapped != null) {
+            if (!mapped.hasRemaining()) {
+                return false;
+            }
+            if (mapped.remaining() < GameRecorder.HEADER_BYTES) {
+                throw new EOFException("The last record is cut short");
+            }
+            boardSize = mapped.get();
+            winValue = mapped.getInt();
+            seed = mapped.getLong();
+            spawnRule = mapped.get();
+            moveCount = mapped.getInt();
+            finalScore = mapped.getInt();
+            int length = movesLength();
+            if (mapped.remaining() < length) {
+                throw new EOFException("The last record is cut short");
+            }
+            mapped.get(moves, 0, length);
+            return true;
+        }
+        int first = in.read();
+        if (first < 0) {
+            return false;
+        }
+        boardSize = first;
+        winValue = in.readInt();
+        seed = in.readLong();
+        spawnRule = in.readByte();
+        moveCount = in.readInt();
+        finalScore = in.readInt();
+        int length = movesLength(); // May grow moves, so it runs before moves is read
+        in.readFully(moves, 0, length);
+        return true;
+    }
+
+    // Checks the record header and makes room for its moves
+    private int movesLength() throws IOException {
+        if (boardSize < 4 || boardSize > 10 || moveCount < 0) {
+            throw new IOException("Bad record header");
+        }
+        if (spawnRule != GameRecorder.SPAWN_ROW_MAJOR) {
+            throw new IOException("Unknown spawn rule " + spawnRule);
+        }
+        int length = (moveCount + 3) >>> 2;
+        if (length > moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(length, moves.length * 2));
+        }
+        return length;
+    }
+
+    /**
+     * This returns one move of the current record.
+     *
+     * @param i             A move number between 0 and getMoveCount() - 1
+     * @return Direction    The direction moved
+     */
+    public Direction getMove(int i){
+        if (i < 0 || i >= moveCount) {
+            throw new IllegalArgumentException();
+        }
+        return DIRECTIONS[(moves[i >>> 2] >>> ((i & 3) * 2)) & 3];
+    }
+
+    /*************************************************************************/
+    /* Replay Methods */
+    /**
+     * This plays the current record again from its seed.
+     *
+     * @return GameController   The game after the last move
+     * @throws IllegalStateException    If a recorded move does not change the board
+     */
+    public GameController replay(){
+        Random spawns = new Random(seed);
+        GameController game = GameRecorder.newGame(boardSize, winValue, spawns);
+        for (int i = 0; i < moveCount; i++) {
+            if (!game.move(getMove(i)).isMoved()) {
+                throw new IllegalStateException("Move " + i + " of the record does not change the board");
+            }
+            GameRecorder.spawn(game, spawns);
+        }
+        return game;
+    }
+
+    /**
+     * This plays the current record again and checks that it ends with the recorded score.
+     *
+     * @return boolean      True if the replay matches the record
+     */
+    public boolean verify(){
+        try {
+            return replay().getScore() == finalScore;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * This closes the stream (mapped files are released by the garbage collector).
+     *
+     * @throws IOException  If the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns the board size of the current record.
+     *
+     * @return int      The size of the board
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * This returns the win value of the current record.
+     *
+     * @return int      The win value
+     */
+    public int getWinValue() {
+        return winValue;
+    }
+
+    /**
+     * This returns the seed of the current record.
+     *
+     * @return long     The seed the game was created with
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * This returns the number of moves in the current record.
+     *
+     * @return int      The number of moves
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * This returns the score the current record ended with.
+     *
+     * @return int      The recorded final score
+     */
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    /*************************************************************************/
+    /* Main Method */
+    /**
+     * This main method replays every game in a file and reports any that do not match.
+     *
+     * @param args      [file] [stream|map]
+     */
+    public static void main(String[] args) throws IOException {
+        String path = (args.length > 0) ? args[0] : "games.bin";
+        boolean map = args.length <= 1 || args[1].equals("map");
+        long games = 0;
+        long moves = 0;
+        long failed = 0;
+        long start = System.nanoTime();
+        try (GameReplayer replayer = map ? new GameReplayer(path) : new GameReplayer(new FileInputStream(path))) {
+            while (replayer.next()) {
+                if (!replayer.verify()) {
+                    failed++;
+                    System.out.println("Game " + games + " (seed " + replayer.getSeed() + ") does not match its record");
+                }
+                games++;
+                moves += replayer.getMoveCount();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Replayed %d games (%d moves) in %.1f s: %.0f moves/sec, %d failed%n",
+                games, moves, seconds, moves / seconds, failed);
+    }
+}
@@ -0,0 +1,443 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * GameServer holds many independent games in one JVM and lets clients play them over a
+ * line protocol on a local TCP port. Every connection gets its own thread - a virtual
+ * thread when the JVM has them, so thousands of idle connections cost almost nothing -
+ * and sessions live in a concurrent map, each with its own lock, so moves on different
+ * games never wait on each other. Sessions nobody has touched for a while are evicted.
+ *
+ * Every command is one line and gets one line back:
+ *   NEW [boardSize] [winValue] [seed]  starts a game     -> OK id status score cells
+ *   MOVE id UP|DOWN|LEFT|RIGHT|W|A|S|D  makes a move      -> OK id status score cells
+ *   GET id                              shows a game      -> OK id status score cells
+ *   QUIT id                             ends a game       -> OK id
+ * where cells are the exponents of the board (0 for empty), row by row, split by commas.
+ * Anything that goes wrong is answered with ERR and a reason.
+ *
+ * With a SessionStore every change is saved before it is answered, and the sessions
+ * come back when the server is started again.
+ *
+ * Usage: java GameServer [port] [idleSeconds] [maxSessions] [storeDirectory]
+ */
+public class GameServer {
+    /*************************************************************************/
+    /* Variables */
+    public static final int DEFAULT_PORT = 2048;
+    private int port;
+    private long idleNanos; // Sessions unused for longer than this are evicted
+    private int maxSessions;
+    private Map<Long, Session> sessions = new ConcurrentHashMap<Long, Session>();
+    private AtomicInteger sessionSlots = new AtomicInteger(); // Sessions held or being created, never above maxSessions
+    private AtomicLong nextId = new AtomicLong(1);
+    private AtomicLong evicted = new AtomicLong();
+    private ServerSocket serverSocket;
+    private ExecutorService connections;
+    private ScheduledExecutorService evictor;
+    private SessionStore store; // Saves every session, null if they are not saved
+
+    /*************************************************************************/
+    /* Session Class */
+    // One game. Its lock is held for every command on it, so a session is only ever
+    // changed by one connection at a time even if several share its id.
+    private static class Session {
+        private final long id;
+        private final GameController game;
+        private final ReentrantLock lock = new ReentrantLock(); // Not synchronized, which would pin a virtual thread
+        private volatile long lastUsed = System.nanoTime();
+
+        Session(long id, GameController game){
+            this.id = id;
+            this.game = game;
+        }
+    }
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a server. Nothing is opened until start is called.
+     *
+     * @param port          The port to listen on (0 picks a free one)
+     * @param idleSeconds   How long a session may go unused before it is evicted
+     * @param maxSessions   The most sessions held at once; NEW is refused past this
+     */
+    public GameServer(int port, int idleSeconds, int maxSessions){
+        if (port < 0 || port > 65535 || idleSeconds < 1 || maxSessions < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.port = port;
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        this.maxSessions = maxSessions;
+    }
+
+    /*************************************************************************/
+    /* Control Methods */
+    /**
+     * This saves every session in a store, so they survive a restart. It must be called
+     * before start, which recovers the sessions saved in it.
+     *
+     * @param store     The store, which must not have been recovered yet
+     */
+    public void setStore(SessionStore store){
+        this.store = store;
+    }
+
+    /**
+     * This recovers the saved sessions if there is a store, then opens the port on the loopback address and starts accepting connections
+     * and evicting idle sessions in the background.
+     *
+     * @throws IOException  If the port cannot be opened
+     */
+    public void start() throws IOException {
+        if (store != null) {
+            for (Map.Entry<Long, GameController> saved : store.recover().entrySet()) {
+                sessions.put(saved.getKey(), new Session(saved.getKey(), saved.getValue()));
+                sessionSlots.incrementAndGet();
+                nextId.set(Math.max(nextId.get(), saved.getKey() + 1));
+            }
+        }
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        connections = newThreadPerTaskExecutor("game-connection");
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "game-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(idleNanos) / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        Thread acceptor = new Thread(this::acceptLoop, "game-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * This stops accepting connections and closes the server and its store. Connections
+     * already open end when their clients next send a command or disconnect.
+     *
+     * @throws IOException  If the port cannot be closed or the store failed
+     */
+    public void stop() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+            connections.shutdownNow();
+            evictor.shutdownNow();
+        }
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * This returns an executor that starts a new thread for every task: a virtual thread
+     * on JVMs that have them (looked up by reflection so the game still builds and runs
+     * on older JVMs), otherwise a cached pool of daemon threads.
+     *
+     * @param name              The name given to the threads
+     * @return ExecutorService  The executor
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String name){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Hands every new connection to its own thread until the server socket is closed
+    private void acceptLoop(){
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true); // Replies are one small line each
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // The socket was closed by stop, or this one connection failed
+            }
+        }
+    }
+
+    // Evicts every session unused for longer than the idle time. Sessions in use right now are skipped.
+    private void evictIdle(){
+        long now = System.nanoTime();
+        for (Session session : sessions.values()) {
+            if (now - session.lastUsed > idleNanos && session.lock.tryLock()) {
+                try {
+                    if (now - session.lastUsed > idleNanos && sessions.remove(session.id, session)) {
+                        sessionSlots.decrementAndGet();
+                        evicted.incrementAndGet();
+                        if (store != null) {
+                            store.recordRemove(session.id);
+                        }
+                    }
+                } finally {
+                    session.lock.unlock();
+                }
+            }
+        }
+    }
+
+    /*************************************************************************/
+    /* Connection Methods */
+    // Answers commands from one client until it disconnects
+    private void serve(Socket socket){
+        try (Socket client = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII))) {
+            StringBuilder reply = new StringBuilder(256); // Reused for every reply on this connection
+            String line;
+            while ((line = in.readLine()) != null) {
+                reply.setLength(0);
+                try {
+                    long record = handle(line.trim().split("\\s+"), reply);
+                    if (store != null) {
+                        // Answer only once the change is on disk; waiting outside the session lock
+                        // lets other commands pile up for the same fsync
+                        store.awaitDurable(record);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Also catches NumberFormatException from bad numbers
+                    reply.setLength(0);
+                    reply.append("ERR ").append(e.getMessage() == null ? "bad arguments" : e.getMessage());
+                } catch (IOException e) {
+                    reply.setLength(0);
+                    reply.append("ERR not saved");
+                }
+                reply.append('\n');
+                out.append(reply);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; its sessions stay until they are evicted or quit
+        } catch (InterruptedException e) {
+            // The server is stopping
+        }
+    }
+
+    // Runs one command and writes the reply (without the newline). Returns the store record
+    // to wait for before replying, or 0 if nothing was saved.
+    private long handle(String[] words, StringBuilder reply){
+        long record = 0;
+        switch (words[0].toUpperCase()) {
+            case "NEW":
+                int boardSize = (words.length > 1) ? Integer.parseInt(words[1]) : 4;
+                int winValue = (words.length > 2) ? Integer.parseInt(words[2]) : 2048;
+                new Tile(winValue); // Check that the win value is a power of two - will throw an exception if not
+                reserveSlot();
+                boolean added = false;
+                try {
+                    GameController game = (words.length > 3)
+                            ? new GameController(boardSize, winValue, Long.parseLong(words[3]))
+                            : new GameController(boardSize, winValue);
+                    Session created = new Session(nextId.getAndIncrement(), game);
+                    // Ids are easy to guess, so the session is locked and its state journalled before
+                    // anyone can find it; a MOVE sent at once waits and is journalled after the state
+                    created.lock.lock();
+                    try {
+                        if (store != null) {
+                            record = store.recordState(created.id, game);
+                        }
+                        sessions.put(created.id, created);
+                        added = true;
+                        appendState(created, reply);
+                    } finally {
+                        created.lock.unlock();
+                    }
+                } finally {
+                    if (!added) {
+                        sessionSlots.decrementAndGet(); // Give back the slot of a NEW that failed
+                    }
+                }
+                return record;
+            case "MOVE":
+                if (words.length < 3) {
+                    throw new IllegalArgumentException("usage: MOVE id direction");
+                }
+                Direction direction = parseDirection(words[2]);
+                Session moving = lock(words);
+                try {
+                    moving.lastUsed = System.nanoTime();
+                    // A finished game ignores moves, like the other front ends
+                    if (moving.game.getGameStatus() == GameStatus.IN_PROGRESS
+                            && moving.game.move(direction).isMoved()) {
+                        moving.game.newTile();
+                        if (store != null) {
+                            record = store.recordMove(moving.id, direction, moving.game);
+                        }
+                    }
+                    appendState(moving, reply);
+                } finally {
+                    moving.lock.unlock();
+                }
+                return record;
+            case "GET":
+                Session shown = lock(words);
+                try {
+                    shown.lastUsed = System.nanoTime();
+                    appendState(shown, reply);
+                } finally {
+                    shown.lock.unlock();
+                }
+                return record;
+            case "QUIT":
+                Session ended = lock(words);
+                try {
+                    if (sessions.remove(ended.id, ended)) {
+                        sessionSlots.decrementAndGet();
+                        if (store != null) {
+                            record = store.recordRemove(ended.id);
+                        }
+                    }
+                } finally {
+                    ended.lock.unlock();
+                }
+                reply.append("OK ").append(ended.id);
+                return record;
+            default:
+                throw new IllegalArgumentException("unknown command " + words[0]);
+        }
+    }
+
+    // Takes one of the maxSessions slots, or refuses the NEW if they are all taken
+    private void reserveSlot(){
+        int held;
+        do {
+            held = sessionSlots.get();
+            if (held >= maxSessions) {
+                throw new IllegalArgumentException("too many sessions");
+            }
+        } while (!sessionSlots.compareAndSet(held, held + 1));
+    }
+
+    // Looks up the session named by the second word of a command
+    private Session find(String[] words){
+        if (words.length < 2) {
+            throw new IllegalArgumentException("missing session id");
+        }
+        Session session = sessions.get(Long.parseLong(words[1]));
+        if (session == null) {
+            throw new IllegalArgumentException("no session " + words[1]);
+        }
+        return session;
+    }
+
+    // Finds the session of a command and locks it. The session is checked again once locked, since
+    // QUIT or evictIdle may have removed it in between; a removed session is unlocked and not used.
+    private Session lock(String[] words){
+        Session session = find(words);
+        session.lock.lock();
+        if (sessions.get(session.id) != session) {
+            session.lock.unlock();
+            throw new IllegalArgumentException("no session " + words[1]);
+        }
+        return session;
+    }
+
+    // Reads a direction as a word or as W/A/S/D
+    private static Direction parseDirection(String word){
+        switch (word.toUpperCase()) {
+            case "W":
+            case "UP":
+                return Direction.UP;
+            case "S":
+            case "DOWN":
+                return Direction.DOWN;
+            case "A":
+            case "LEFT":
+                return Direction.LEFT;
+            case "D":
+            case "RIGHT":
+                return Direction.RIGHT;
+            default:
+                throw new IllegalArgumentException("unknown direction " + word);
+        }
+    }
+
+    // Writes "OK id status score cells" for a session whose lock is held
+    private static void appendState(Session session, StringBuilder reply){
+        Board board = session.game.getBoard();
+        reply.append("OK ").append(session.id).append(' ').append(session.game.getGameStatus())
+                .append(' ').append(session.game.getScore()).append(' ');
+        int cells = board.getBoardSize() * board.getBoardSize();
+        for (int i = 0; i < cells; i++) {
+            if (i > 0) {
+                reply.append(',');
+            }
+            reply.append(board.getCell(i));
+        }
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns the port the server is listening on.
+     *
+     * @return int      The port, useful when the server was created with port 0
+     */
+    public int getPort() {
+        return (serverSocket == null) ? port : serverSocket.getLocalPort();
+    }
+
+    /**
+     * This returns the number of sessions held right now.
+     *
+     * @return int      The number of sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * This returns the number of sessions evicted for being idle since the server started.
+     *
+     * @return long     The number of evicted sessions
+     */
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    /*************************************************************************/
+    /* Main Method */
+    /**
+     * This main method runs a server until the program is stopped, printing the number
+     * of sessions once a minute.
+     *
+     * @param args      [port] [idleSeconds] [maxSessions] [storeDirectory]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int idleSeconds = (args.length > 1) ? Integer.parseInt(args[1]) : 600;
+        int maxSessions = (args.length > 2) ? Integer.parseInt(args[2]) : 100000;
+        GameServer server = new GameServer(port, idleSeconds, maxSessions);
+        if (args.length > 3) {
+            server.setStore(new SessionStore(args[3], SessionStore.DEFAULT_CHECKPOINT_RECORDS));
+        }
+        server.start();
+        System.out.println("Listening on localhost:" + server.getPort());
+        while (true) {
+            Thread.sleep(60000);
+            System.out.println(server.getSessionCount() + " sessions, " + server.getEvictedCount() + " evicted");
+        }
+    }
+}
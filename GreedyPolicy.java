@@ -0,0 +1,39 @@
+import java.util.Random;
+
+/**
+ * GreedyPolicy tries every direction on a scratch copy of the game and picks the one
+ * that earns the most points right away, falling back to the corner order on ties.
+ */
+public class GreedyPolicy implements MovePolicy {
+    /*************************************************************************/
+    /* Variables */
+    // The directions in the order ties are broken
+    private static final Direction[] PREFERENCE = {Direction.DOWN, Direction.LEFT, Direction.RIGHT, Direction.UP};
+    private GameController scratch; // Reused copy of the game the moves are tried on
+
+    /*************************************************************************/
+    /* Choose Move Method */
+    /**
+     * This picks the direction that earns the most points, out of the ones that change the board.
+     *
+     * @param game          The game to pick a move for
+     * @return Direction    The direction to move the tiles in
+     */
+    @Override
+    public Direction chooseMove(GameController game){
+        if (scratch == null) {
+            scratch = new GameController(game.getBoard().getBoardSize(), game.getWinValue(), new Random(0));
+        }
+        Direction best = PREFERENCE[0];
+        int bestScore = -1;
+        for (Direction direction : PREFERENCE) {
+            scratch.copyFrom(game);
+            MoveResult result = scratch.move(direction);
+            if (result.isMoved() && result.getScoreDelta() > bestScore) {
+                best = direction;
+                bestScore = result.getScoreDelta();
+            }
+        }
+        return best;
+    }
+}
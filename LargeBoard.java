@@ -0,0 +1,449 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * LargeBoard is a game of 2048 on a board far bigger than Board allows (up to 32768
+ * cells a side), for stress testing and variant games. Cells are exponents in byte
+ * arrays of about a megabyte each, every chunk holding whole rows, so no single array
+ * gets huge. Rows (for left and right) or columns (for up and down) never affect each
+ * other in a move, so a move is split into blocks of lines that run in parallel on a
+ * fork/join pool. Columns are handled a block at a time, walking down the rows, so the
+ * memory is still read in order. The loss check and the search for a spot for a new
+ * tile run in parallel over the chunks as well. LargeBoardBenchmark in the jmh module
+ * times moves for several board sizes and pool sizes (see randomMoves).
+ */
+public class LargeBoard {
+    /*************************************************************************/
+    /* Variables */
+    public static final int MAX_SIZE = 32768;
+    private static final int CHUNK_CELLS = 1 << 20; // Cells in one chunk, rounded down to whole rows
+    private static final int TASK_CELLS = 1 << 16; // Cells one task moves before it stops splitting
+    private static final int MIN_COLUMN_BLOCK = 256; // Fewest columns one task moves up or down
+    private static final int SPAWN_TRIES = 64; // Random guesses at an empty cell before counting them
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private int size;
+    private int rowsPerChunk;
+    private byte[][] chunks;
+    private int winExponent;
+    private long emptyCount;
+    private int maxExponent;
+    private long score;
+    private GameStatus gameStatus = GameStatus.IN_PROGRESS;
+    private SplittableRandom rand;
+    private ForkJoinPool pool;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates an empty board with one starting tile.
+     *
+     * @param size          The number of rows/columns, between 4 and MAX_SIZE
+     * @param winValue      The number to reach in order to win the game - some power of 2.
+     * @param seed          The seed for placing new tiles
+     * @param pool          The pool moves, spawns and status checks run on
+     */
+    public LargeBoard(int size, int winValue, long seed, ForkJoinPool pool){
+        if (size < 4 || size > MAX_SIZE) {
+            throw new IllegalArgumentException();
+        }
+        winExponent = new Tile(winValue).getExponent(); // Will throw an exception if not a power of two
+        this.size = size;
+        this.rand = new SplittableRandom(seed);
+        this.pool = pool;
+        rowsPerChunk = Math.max(1, CHUNK_CELLS / size);
+        int chunkCount = (size + rowsPerChunk - 1) / rowsPerChunk;
+        chunks = new byte[chunkCount][];
+        for (int i = 0; i < chunkCount; i++) {
+            int rows = Math.min(rowsPerChunk, size - i * rowsPerChunk);
+            chunks[i] = new byte[rows * size];
+        }
+        emptyCount = (long) size * size;
+        newTile();
+    }
+
+    /*************************************************************************/
+    /* Cell Methods */
+    /**
+     * This returns the exponent at a position.
+     *
+     * @param row       A row on the board
+     * @param col       A column on the board
+     * @return int      The exponent of the tile value, or 0 if the cell is empty
+     */
+    public int getCell(int row, int col){
+        checkPosition(row, col);
+        return chunks[row / rowsPerChunk][(row % rowsPerChunk) * size + col];
+    }
+
+    /**
+     * This sets the exponent at a position, for setting up boards.
+     *
+     * @param row       A row on the board
+     * @param col       A column on the board
+     * @param exponent  The exponent of the tile value (1 for 2, 2 for 4, ...), or 0 to empty the cell
+     */
+    public void setCell(int row, int col, int exponent){
+        checkPosition(row, col);
+        if (exponent < 0 || exponent > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        byte[] chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * size + col;
+        if (chunk[offset] == 0 && exponent != 0) {
+            emptyCount--;
+        } else if (chunk[offset] != 0 && exponent == 0) {
+            emptyCount++;
+        }
+        chunk[offset] = (byte) exponent;
+        maxExponent = Math.max(maxExponent, exponent);
+    }
+
+    private void checkPosition(int row, int col){
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /*************************************************************************/
+    /* Move Methods */
+    /**
+     * This moves every tile in a direction, merging equal tiles, with the lines split
+     * across the pool.
+     *
+     * @param direction     The direction to move the tiles in
+     * @return boolean      True if the move changed the board
+     */
+    public boolean move(Direction direction){
+        int linesPerTask = Math.max(1, TASK_CELLS / size);
+        if (direction == Direction.UP || direction == Direction.DOWN) {
+            // Narrow blocks of columns would read only a few bytes of each cache line in a row
+            linesPerTask = Math.max(MIN_COLUMN_BLOCK, linesPerTask);
+        }
+        Stats stats = pool.invoke(new MoveTask(direction, 0, size, linesPerTask));
+        emptyCount += stats.merges; // Every merge leaves one more empty cell behind
+        score += stats.score;
+        maxExponent = Math.max(maxExponent, stats.maxExponent);
+        return stats.moved;
+    }
+
+    // Totals of a block of lines, added together as the blocks finish
+    private static class Stats {
+        private boolean moved;
+        private long merges;
+        private long score;
+        private int maxExponent;
+
+        private void add(Stats other){
+            moved |= other.moved;
+            merges += other.merges;
+            score += other.score;
+            maxExponent = Math.max(maxExponent, other.maxExponent);
+        }
+    }
+
+    // Splits a range of lines in half until it is small enough to move on one thread
+    private class MoveTask extends RecursiveTask<Stats> {
+        private static final long serialVersionUID = 1L;
+        private final Direction direction;
+        private final int first; // First line (row or column) in the range
+        private final int last; // One past the last line
+        private final int linesPerTask;
+
+        MoveTask(Direction direction, int first, int last, int linesPerTask){
+            this.direction = direction;
+            this.first = first;
+            this.last = last;
+            this.linesPerTask = linesPerTask;
+        }
+
+        @Override
+        protected Stats compute(){
+            if (last - first <= linesPerTask) {
+                Stats stats = new Stats();
+                if (direction == Direction.LEFT || direction == Direction.RIGHT) {
+                    for (int row = first; row < last; row++) {
+                        moveRow(row, direction == Direction.LEFT, stats);
+                    }
+                } else {
+                    moveColumns(first, last, direction == Direction.UP, stats);
+                }
+                return stats;
+            }
+            int middle = (first + last) >>> 1;
+            MoveTask left = new MoveTask(direction, first, middle, linesPerTask);
+            left.fork();
+            Stats stats = new MoveTask(direction, middle, last, linesPerTask).compute();
+            stats.add(left.join());
+            return stats;
+        }
+    }
+
+    // Slides one row. Each tile is cleared as it is read and written where it lands,
+    // which is never past the cell being read, so the row is moved in place in one pass.
+    private void moveRow(int row, boolean toStart, Stats stats){
+        byte[] chunk = chunks[row / rowsPerChunk];
+        int base = (row % rowsPerChunk) * size;
+        int step = toStart ? 1 : -1;
+        int start = toStart ? base : base + size - 1;
+        int write = start;
+        int pending = 0;
+        int pendingCell = -1;
+        for (int i = 0, cell = start; i < size; i++, cell += step) {
+            int exponent = chunk[cell];
+            if (exponent == 0) {
+                continue;
+            }
+            chunk[cell] = 0;
+            if (exponent == pending) {
+                chunk[write] = (byte) (exponent + 1);
+                merge(exponent + 1, stats);
+                write += step;
+                pending = 0;
+            } else {
+                if (pending != 0) {
+                    chunk[write] = (byte) pending;
+                    stats.moved |= write != pendingCell;
+                    write += step;
+                }
+                pending = exponent;
+                pendingCell = cell;
+            }
+        }
+        if (pending != 0) {
+            chunk[write] = (byte) pending;
+            stats.moved |= write != pendingCell;
+        }
+    }
+
+    // Slides a block of columns, walking the rows in order and keeping where each column
+    // writes next, so every row segment is read straight through like moveRow reads a row
+    private void moveColumns(int firstCol, int lastCol, boolean toTop, Stats stats){
+        int width = lastCol - firstCol;
+        int step = toTop ? 1 : -1;
+        int startRow = toTop ? 0 : size - 1;
+        int[] write = new int[width]; // Row each column writes its next tile to
+        int[] pending = new int[width]; // Tile waiting to see if the next one matches it
+        int[] pendingRow = new int[width];
+        for (int k = 0; k < width; k++) {
+            write[k] = startRow;
+        }
+        for (int i = 0, row = startRow; i < size; i++, row += step) {
+            byte[] chunk = chunks[row / rowsPerChunk];
+            int base = (row % rowsPerChunk) * size;
+            for (int k = 0, col = firstCol; k < width; k++, col++) {
+                int exponent = chunk[base + col];
+                if (exponent == 0) {
+                    continue;
+                }
+                chunk[base + col] = 0;
+                if (exponent == pending[k]) {
+                    put(write[k], col, exponent + 1);
+                    merge(exponent + 1, stats);
+                    write[k] += step;
+                    pending[k] = 0;
+                } else {
+                    if (pending[k] != 0) {
+                        put(write[k], col, pending[k]);
+                        stats.moved |= write[k] != pendingRow[k];
+                        write[k] += step;
+                    }
+                    pending[k] = exponent;
+                    pendingRow[k] = row;
+                }
+            }
+        }
+        for (int k = 0; k < width; k++) {
+            if (pending[k] != 0) {
+                put(write[k], firstCol + k, pending[k]);
+                stats.moved |= write[k] != pendingRow[k];
+            }
+        }
+    }
+
+    private void put(int row, int col, int exponent){
+        chunks[row / rowsPerChunk][(row % rowsPerChunk) * size + col] = (byte) exponent;
+    }
+
+    private static void merge(int exponent, Stats stats){
+        stats.moved = true;
+        stats.merges++;
+        stats.score += 1L << exponent;
+        stats.maxExponent = Math.max(stats.maxExponent, exponent);
+    }
+
+    /*************************************************************************/
+    /* New Tile Method */
+    /**
+     * This places a 2 or a 4 in a random empty cell. While the board has plenty of room a
+     * few random guesses find one; on a crowded board the empty cells of every chunk are
+     * counted in parallel and the chosen one is found from those counts.
+     *
+     * @return boolean  False if the board is full
+     */
+    public boolean newTile(){
+        if (emptyCount == 0) {
+            return false;
+        }
+        int exponent = (rand.nextInt(2) == 1) ? 1 : 2;
+        for (int i = 0; i < SPAWN_TRIES; i++) {
+            int row = rand.nextInt(size);
+            int col = rand.nextInt(size);
+            if (getCell(row, col) == 0) {
+                setCell(row, col, exponent);
+                return true;
+            }
+        }
+        long[] counts = new long[chunks.length];
+        pool.submit(() -> IntStream.range(0, chunks.length).parallel().forEach(i -> counts[i] = countEmpty(chunks[i]))).join();
+        long n = rand.nextLong(emptyCount);
+        int chunk = 0;
+        while (n >= counts[chunk]) {
+            n -= counts[chunk];
+            chunk++;
+        }
+        byte[] cells = chunks[chunk];
+        for (int offset = 0; ; offset++) {
+            if (cells[offset] == 0 && n-- == 0) {
+                setCell(chunk * rowsPerChunk + offset / size, offset % size, exponent);
+                return true;
+            }
+        }
+    }
+
+    private static long countEmpty(byte[] cells){
+        long count = 0;
+        for (byte cell : cells) {
+            if (cell == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /*************************************************************************/
+    /* Status Methods */
+    /**
+     * This returns the status of the game, checking for a win and a loss first. Only a
+     * full board needs the loss check, which looks for equal neighbors in every chunk in parallel.
+     *
+     * @return GameStatus   An enum for the game status (lost, won, or in-progress)
+     */
+    public GameStatus getGameStatus(){
+        if (gameStatus == GameStatus.IN_PROGRESS && maxExponent >= winExponent) {
+            gameStatus = GameStatus.WON;
+        }
+        if (gameStatus == GameStatus.IN_PROGRESS && emptyCount == 0) {
+            boolean canMerge = pool.submit(() -> IntStream.range(0, chunks.length).parallel()
+                    .anyMatch(this::chunkCanMerge)).join();
+            if (!canMerge) {
+                gameStatus = GameStatus.LOST;
+            }
+        }
+        return gameStatus;
+    }
+
+    // Looks for two equal tiles next to each other in a chunk, or between its last row and the next chunk
+    private boolean chunkCanMerge(int chunk){
+        byte[] cells = chunks[chunk];
+        int rows = cells.length / size;
+        for (int r = 0; r < rows; r++) {
+            int base = r * size;
+            for (int col = 0; col < size - 1; col++) {
+                if (cells[base + col] == cells[base + col + 1]) {
+                    return true;
+                }
+            }
+            // The row below is in this chunk or the first row of the next one
+            byte[] below = (r + 1 < rows) ? cells : (chunk + 1 < chunks.length) ? chunks[chunk + 1] : null;
+            int belowBase = (r + 1 < rows) ? base + size : 0;
+            if (below != null) {
+                for (int col = 0; col < size; col++) {
+                    if (cells[base + col] == below[belowBase + col]) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns the size of the board.
+     *
+     * @return int      The number of rows/columns
+     */
+    public int getBoardSize() {
+        return size;
+    }
+
+    /**
+     * This returns the number of empty cells.
+     *
+     * @return long     The number of empty cells
+     */
+    public long getEmptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * This returns the largest exponent on the board.
+     *
+     * @return int      The exponent of the largest tile
+     */
+    public int getMaxExponent() {
+        return maxExponent;
+    }
+
+    /**
+     * This returns the points earned so far.
+     *
+     * @return long     The sum of the values of every merged tile
+     */
+    public long getScore() {
+        return score;
+    }
+
+    /*************************************************************************/
+    /* Benchmark Methods */
+    /**
+     * This returns the step LargeBoardBenchmark times: a random move, followed by a new
+     * tile when it changed the board, on a board about half filled with small tiles. A
+     * finished game is filled again and carries on.
+     *
+     * @param size              The number of rows/columns
+     * @param pool              The pool the moves run on
+     * @param seed              Seed for the tiles and the moves
+     * @return LongSupplier     Makes one move per call and returns the score so far
+     */
+    public static LongSupplier randomMoves(int size, ForkJoinPool pool, long seed){
+        LargeBoard board = new LargeBoard(size, 1 << 30, seed, pool);
+        SplittableRandom rand = new SplittableRandom(seed);
+        board.fill(rand);
+        return () -> {
+            if (board.move(DIRECTIONS[rand.nextInt(DIRECTIONS.length)])) {
+                board.newTile();
+            }
+            if (board.getGameStatus() != GameStatus.IN_PROGRESS) {
+                board.gameStatus = GameStatus.IN_PROGRESS;
+                board.fill(rand);
+            }
+            return board.score;
+        };
+    }
+
+    // Fills about half of the empty cells with 2s, 4s and 8s so moves have work to do
+    private void fill(SplittableRandom fillRand){
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (getCell(row, col) == 0 && fillRand.nextBoolean()) {
+                    setCell(row, col, 1 + fillRand.nextInt(3));
+                }
+            }
+        }
+    }
+}
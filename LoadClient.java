@@ -0,0 +1,121 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoadClient puts load on a GameServer: many connections at once, each playing random
+ * moves as fast as the server answers and starting a new game whenever one ends. The
+ * time from sending each MOVE to reading its reply is kept, and the median, 99th
+ * percentile and worst latency are printed at the end along with the throughput.
+ *
+ * Usage: java LoadClient [port] [connections] [movesPerConnection] [boardSize]
+ */
+public class LoadClient {
+    /*************************************************************************/
+    /* Variables */
+    private static final String[] MOVES = {"UP", "DOWN", "LEFT", "RIGHT"};
+
+    /*************************************************************************/
+    /* Client Method */
+    /**
+     * This plays random moves over one connection and returns how long each one took.
+     *
+     * @param port          The port of the server on this machine
+     * @param moves         The number of moves to make
+     * @param boardSize     The size of the boards to play on
+     * @param seed          Seed for the moves and games, so runs can be repeated
+     * @return long[]       The latency of every move in nanoseconds
+     * @throws IOException  If the connection fails or the server answers with an error
+     */
+    public static long[] play(int port, int moves, int boardSize, long seed) throws IOException {
+        long[] latencies = new long[moves];
+        SplittableRandom rand = new SplittableRandom(seed);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            String id = newGame(in, out, boardSize, rand.nextLong());
+            for (int i = 0; i < moves; i++) {
+                long start = System.nanoTime();
+                String[] reply = send(in, out, "MOVE " + id + " " + MOVES[rand.nextInt(MOVES.length)]);
+                latencies[i] = System.nanoTime() - start;
+                if (!reply[2].equals(GameStatus.IN_PROGRESS.name())) {
+                    send(in, out, "QUIT " + id);
+                    id = newGame(in, out, boardSize, rand.nextLong());
+                }
+            }
+            send(in, out, "QUIT " + id);
+        }
+        return latencies;
+    }
+
+    // Starts a game and returns its session id
+    private static String newGame(BufferedReader in, Writer out, int boardSize, long seed) throws IOException {
+        return send(in, out, "NEW " + boardSize + " 2048 " + seed)[1];
+    }
+
+    // Sends one command and returns the words of the reply
+    private static String[] send(BufferedReader in, Writer out, String command) throws IOException {
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        String line = in.readLine();
+        if (line == null || !line.startsWith("OK")) {
+            throw new IOException(command + " failed: " + line);
+        }
+        return line.split(" ");
+    }
+
+    // Latency at a fraction of the way through the sorted latencies, in microseconds
+    private static double percentile(long[] sorted, double fraction){
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+
+    /*************************************************************************/
+    /* Main Method */
+    /**
+     * This main method runs the connections at once (on virtual threads when the JVM has
+     * them) and prints the latency and throughput of all their moves.
+     *
+     * @param args      [port] [connections] [movesPerConnection] [boardSize]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+        int connections = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        int moves = (args.length > 2) ? Integer.parseInt(args[2]) : 10000;
+        int boardSize = (args.length > 3) ? Integer.parseInt(args[3]) : 4;
+        ExecutorService executor = GameServer.newThreadPerTaskExecutor("load-client");
+        List<Future<long[]>> results = new ArrayList<Future<long[]>>();
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            long seed = i;
+            results.add(executor.submit(() -> play(port, moves, boardSize, seed)));
+        }
+        long[] latencies = new long[connections * moves];
+        for (int i = 0; i < connections; i++) {
+            System.arraycopy(results.get(i).get(), 0, latencies, i * moves, moves);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        Arrays.sort(latencies);
+        System.out.printf("%d connections x %d moves in %.1f s: %.0f moves/sec%n",
+                connections, moves, seconds, latencies.length / seconds);
+        System.out.printf("Move latency: p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e3);
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * MonteCarloAdvisor picks moves by playing random games. For each direction that
+ * changes the board it plays thousands of random rollouts from the resulting board
+ * and picks the direction whose rollouts scored the most on average. Rollouts are
+ * split into chunks on a work-stealing fork/join pool; each chunk has its own random
+ * number generator and scratch game that it copies the start position into, so no
+ * Board is shared while rollouts run and a rollout allocates nothing.
+ *
+ * Usage: java MonteCarloAdvisor [boardSize] [rolloutsPerMove] [threads] [seed]
+ */
+public class MonteCarloAdvisor {
+    /*************************************************************************/
+    /* Variables */
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int CHUNK_SIZE = 64; // Rollouts played by one task before it stops splitting
+    private ForkJoinPool pool;
+    private int rolloutsPerMove;
+    private int maxRolloutMoves; // Rollouts that last longer than this are cut short
+    private long seed;
+    private long calls; // Number of calls to bestMove so far, mixed into the seeds
+    private double[] averages = new double[DIRECTIONS.length]; // Average rollout score per direction from the last call
+    private long rollouts; // Rollouts played by the last call
+    private long elapsedNanos;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates an advisor that plays its rollouts on the given pool.
+     *
+     * @param pool              The fork/join pool the rollouts run on
+     * @param rolloutsPerMove   How many random games are played for each direction
+     * @param maxRolloutMoves   The most moves a single rollout may play
+     * @param seed              Seed for the rollout random number generators
+     */
+    public MonteCarloAdvisor(ForkJoinPool pool, int rolloutsPerMove, int maxRolloutMoves, long seed){
+        if (rolloutsPerMove < 1 || maxRolloutMoves < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.pool = pool;
+        this.rolloutsPerMove = rolloutsPerMove;
+        this.maxRolloutMoves = maxRolloutMoves;
+        this.seed = seed;
+    }
+
+    /*************************************************************************/
+    /* Best Move Method */
+    /**
+     * This plays rollouts after every direction that changes the board and picks the best one.
+     *
+     * @param game          The game to pick a move for (it is not changed)
+     * @return Direction    The direction with the best average rollout score, or null if no move changes the board
+     */
+    public Direction bestMove(GameController game){
+        long start = System.nanoTime();
+        Rollouts[] tasks = new Rollouts[DIRECTIONS.length];
+        for (Direction direction : DIRECTIONS) {
+            if (game.canMove(direction)) {
+                tasks[direction.ordinal()] = new Rollouts(game, direction, 0, rolloutsPerMove, seed + calls * 0x9E3779B97F4A7C15L);
+            }
+        }
+        calls++;
+        // Start every direction before waiting on any of them so all the cores stay busy
+        for (Rollouts task : tasks) {
+            if (task != null) {
+                pool.execute(task);
+            }
+        }
+        Direction best = null;
+        rollouts = 0;
+        for (Direction direction : DIRECTIONS) {
+            Rollouts task = tasks[direction.ordinal()];
+            averages[direction.ordinal()] = 0;
+            if (task == null) {
+                continue;
+            }
+            averages[direction.ordinal()] = (double) task.join() / rolloutsPerMove;
+            rollouts += rolloutsPerMove;
+            if (best == null || averages[direction.ordinal()] > averages[best.ordinal()]) {
+                best = direction;
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return best;
+    }
+
+    /*************************************************************************/
+    /* Rollouts Task */
+    // Plays a range of rollouts after one first move and returns the total score they earned
+    private class Rollouts extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final GameController start; // Only read, never moved
+        private final Direction first;
+        private final int from;
+        private final int to;
+        private final long taskSeed;
+
+        Rollouts(GameController start, Direction first, int from, int to, long taskSeed){
+            this.start = start;
+            this.first = first;
+            this.from = from;
+            this.to = to;
+            this.taskSeed = taskSeed;
+        }
+
+        @Override
+        protected Long compute(){
+            if (to - from <= CHUNK_SIZE) {
+                return play();
+            }
+            int middle = (from + to) >>> 1;
+            Rollouts left = new Rollouts(start, first, from, middle, taskSeed);
+            left.fork();
+            long total = new Rollouts(start, first, middle, to, taskSeed).compute();
+            return total + left.join();
+        }
+
+        // Plays this chunk on one scratch game with its own generator
+        private long play(){
+            Random rand = new Random(taskSeed + first.ordinal() * 0xBF58476D1CE4E5B9L + from);
+            RandomPolicy policy = new RandomPolicy(rand);
+            GameController scratch = new GameController(start.getBoard().getBoardSize(), start.getWinValue(), rand);
+            long total = 0;
+            for (int i = from; i < to; i++) {
+                scratch.copyFrom(start);
+                int startScore = scratch.getScore();
+                scratch.move(first);
+                scratch.newTile();
+                // Random moves until the board is stuck or the rollout gets too long
+                for (int moves = 0; moves < maxRolloutMoves; moves++) {
+                    if (!scratch.move(policy.chooseMove(scratch)).isMoved()) {
+                        break;
+                    }
+                    scratch.newTile();
+                }
+                total += scratch.getScore() - startScore;
+            }
+            return total;
+        }
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns the average rollout score of a direction from the last call to bestMove.
+     *
+     * @param direction     The direction to look up
+     * @return double       The average score, or 0 if the direction could not move
+     */
+    public double getAverageScore(Direction direction) {
+        return averages[direction.ordinal()];
+    }
+
+    /**
+     * This returns how many rollouts per second the last call to bestMove played.
+     *
+     * @return double       Rollouts per second
+     */
+    public double getRolloutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rollouts * 1e9 / elapsedNanos;
+    }
+
+    /*************************************************************************/
+    /* Main Method */
+    /**
+     * This main method plays one game with the advisor and prints the rollout throughput,
+     * which can be compared across thread counts to check the scaling.
+     *
+     * @param args      [boardSize] [rolloutsPerMove] [threads] [seed]
+     */
+    public static void main(String[] args){
+        int boardSize = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        int rolloutsPerMove = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        MonteCarloAdvisor advisor = new MonteCarloAdvisor(pool, rolloutsPerMove, 10000, seed);
+        GameController game = new GameController(boardSize, 2048, new Random(seed));
+        int moves = 0;
+        double rate = 0;
+        long start = System.nanoTime();
+        while (game.getGameStatus() == GameStatus.IN_PROGRESS) {
+            Direction best = advisor.bestMove(game);
+            if (best == null) {
+                break;
+            }
+            if (game.move(best).isMoved()) {
+                game.newTile();
+            }
+            moves++;
+            rate += advisor.getRolloutsPerSecond();
+        }
+        pool.shutdown();
+        System.out.printf("%s after %d moves, score %d, largest tile %d%n", game.getGameStatus(), moves,
+                game.getScore(), 1 << game.getBoard().getMaxExponent());
+        System.out.printf("%.1f s on %d threads, %.0f rollouts/sec on average%n",
+                (System.nanoTime() - start) / 1e9, threads, moves == 0 ? 0 : rate / moves);
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * MovePolicy picks the next move for a game that is played without anyone at the
+ * keyboard, such as the games run by the Simulator. A policy may keep scratch
+ * state between calls, so each thread should use its own instance.
+ */
+public interface MovePolicy {
+    /**
+     * This picks the direction to move in next.
+     *
+     * @param game          The game to pick a move for (it should not be changed)
+     * @return Direction    The direction to move the tiles in
+     */
+    Direction chooseMove(GameController game);
+}
@@ -0,0 +1,126 @@
+import java.util.Arrays;
+
+/**
+ * MoveResult describes what a single move did to the board, so callers can skip
+ * spawning a tile or redrawing when nothing happened. When the game tracks tiles
+ * (see GameController.setTrackTiles) it also tells where every tile slid to and
+ * which cells hold a merged tile, which is what BoardView animates.
+ */
+public class MoveResult {
+    /*************************************************************************/
+    /* Variables */
+    private boolean moved; // True if at least one tile moved or merged
+    private int merges; // Number of merges performed
+    private int scoreDelta; // Points gained (sum of the merged tile values)
+    private int maxTile; // Largest tile value on the board after the move
+    private int[] destinations; // Cell each tile slid to by source cell (-1 for empty cells), null unless tracked
+    private boolean[] merged; // True for the cells that hold a merged tile after the move, null unless tracked
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This no-arg constructor creates the result of a move that changed nothing.
+     */
+    public MoveResult(){
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns whether the move changed the board.
+     *
+     * @return boolean  True if at least one tile moved or merged
+     */
+    public boolean isMoved() {
+        return moved;
+    }
+
+    /**
+     * This returns the number of merges the move performed.
+     *
+     * @return int      The number of merges
+     */
+    public int getMerges() {
+        return merges;
+    }
+
+    /**
+     * This returns the points the move earned.
+     *
+     * @return int      The sum of the values of the merged tiles
+     */
+    public int getScoreDelta() {
+        return scoreDelta;
+    }
+
+    /**
+     * This returns the largest tile on the board after the move.
+     *
+     * @return int      The largest tile value, or 0 if the board is empty
+     */
+    public int getMaxTile() {
+        return maxTile;
+    }
+
+    /**
+     * This returns whether the move recorded where each tile went.
+     *
+     * @return boolean  True if getDestination and isMerged can be used
+     */
+    public boolean isTracked() {
+        return destinations != null;
+    }
+
+    /**
+     * This returns the cell a tile slid to.
+     *
+     * @param cell      The row-major index (row * boardSize + col) of the tile before the move
+     * @return int      The row-major index of the tile after the move, or -1 if the cell was empty
+     */
+    public int getDestination(int cell) {
+        return destinations[cell];
+    }
+
+    /**
+     * This returns whether a cell holds a tile made by merging two tiles.
+     *
+     * @param cell      A row-major index (row * boardSize + col) after the move
+     * @return boolean  True if two tiles merged into this cell
+     */
+    public boolean isMerged(int cell) {
+        return merged[cell];
+    }
+
+    /*************************************************************************/
+    /* Set Method */
+    // Fills in the result; GameController reuses one MoveResult per game so a move allocates nothing
+    void set(boolean moved, int merges, int scoreDelta, int maxTile){
+        this.moved = moved;
+        this.merges = merges;
+        this.scoreDelta = scoreDelta;
+        this.maxTile = maxTile;
+    }
+
+    // Sizes the tracking arrays for a board and clears them, or drops them if cells is 0
+    void track(int cells){
+        if (cells == 0) {
+            destinations = null;
+            merged = null;
+            return;
+        }
+        if (destinations == null || destinations.length != cells) {
+            destinations = new int[cells];
+            merged = new boolean[cells];
+        }
+        Arrays.fill(destinations, -1);
+        Arrays.fill(merged, false);
+    }
+
+    // Records that the tile at from slid to to, merging with the tile already headed there if merge is true
+    void trackTile(int from, int to, boolean merge){
+        destinations[from] = to;
+        if (merge) {
+            merged[to] = true;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * NTupleNetwork is a learned evaluator for packed 4x4 boards. Each tuple is a group
+ * of 4 cells whose exponents index a table of weights, and the value of a board is
+ * the sum of the weights its tuples select over all 8 rotations/reflections of the
+ * board. The tables are plain float arrays that training threads update without
+ * locks; a lost update now and then does not hurt the learning.
+ */
+public class NTupleNetwork {
+    /*************************************************************************/
+    /* Variables */
+    public static final String DEFAULT_FILE = "ntuple.bin"; // Where NTupleTrainer saves by default
+    private static final int MAGIC = 0x4E545550; // "NTUP" at the start of a weights file
+    private static final int FILE_VERSION = 1;
+    private static final int TUPLE_LENGTH = 4;
+    private static final int TABLE_SIZE = 1 << (4 * TUPLE_LENGTH); // One weight per combination of 4 exponents
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // Cell indexes (row * 4 + col) of the default tuples: two rows and three 2x2 squares
+    private static final int[][] DEFAULT_TUPLES = {
+            {0, 1, 2, 3},
+            {4, 5, 6, 7},
+            {0, 1, 4, 5},
+            {1, 2, 5, 6},
+            {5, 6, 9, 10}
+    };
+    private int[][] tuples;
+    private float[][] weights; // weights[t][index] for tuple t
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates an untrained network with the default tuples.
+     */
+    public NTupleNetwork(){
+        this(DEFAULT_TUPLES);
+    }
+
+    /**
+     * This creates an untrained network with the given tuples.
+     *
+     * @param tuples    Groups of 4 cell indexes (row * 4 + col)
+     */
+    public NTupleNetwork(int[][] tuples){
+        for (int[] tuple : tuples) {
+            if (tuple.length != TUPLE_LENGTH) {
+                throw new IllegalArgumentException();
+            }
+            for (int cell : tuple) {
+                if (cell < 0 || cell >= BitBoard.CELLS) {
+                    throw new IllegalArgumentException();
+                }
+            }
+        }
+        this.tuples = tuples;
+        this.weights = new float[tuples.length][TABLE_SIZE];
+    }
+
+    /*************************************************************************/
+    /* Evaluate Methods */
+    /**
+     * This returns the learned value of a packed board (the expected score still to come).
+     *
+     * @param cells     The packed board
+     * @return float    The sum of the tuple weights over every symmetry of the board
+     */
+    public float evaluate(long cells){
+        long transposed = BitBoard.transpose(cells);
+        return evaluateSymmetry(cells) + evaluateSymmetry(BitBoard.mirror(cells))
+                + evaluateSymmetry(BitBoard.flip(cells)) + evaluateSymmetry(BitBoard.flip(BitBoard.mirror(cells)))
+                + evaluateSymmetry(transposed) + evaluateSymmetry(BitBoard.mirror(transposed))
+                + evaluateSymmetry(BitBoard.flip(transposed)) + evaluateSymmetry(BitBoard.flip(BitBoard.mirror(transposed)));
+    }
+
+    // Sums the weights for one orientation of the board
+    private float evaluateSymmetry(long cells){
+        float total = 0;
+        for (int t = 0; t < tuples.length; t++) {
+            total += weights[t][index(cells, tuples[t])];
+        }
+        return total;
+    }
+
+    /**
+     * This nudges the value of a packed board by the given amount, spread over every weight that makes it up.
+     *
+     * @param cells     The packed board
+     * @param delta     How much to add to each weight the board selects
+     */
+    public void update(long cells, float delta){
+        long transposed = BitBoard.transpose(cells);
+        updateSymmetry(cells, delta);
+        updateSymmetry(BitBoard.mirror(cells), delta);
+        updateSymmetry(BitBoard.flip(cells), delta);
+        updateSymmetry(BitBoard.flip(BitBoard.mirror(cells)), delta);
+        updateSymmetry(transposed, delta);
+        updateSymmetry(BitBoard.mirror(transposed), delta);
+        updateSymmetry(BitBoard.flip(transposed), delta);
+        updateSymmetry(BitBoard.flip(BitBoard.mirror(transposed)), delta);
+    }
+
+    // Adds delta to the weights for one orientation of the board
+    private void updateSymmetry(long cells, float delta){
+        for (int t = 0; t < tuples.length; t++) {
+            weights[t][index(cells, tuples[t])] += delta;
+        }
+    }
+
+    // Packs the exponents of the tuple's cells into a table index
+    private static int index(long cells, int[] tuple){
+        int index = 0;
+        for (int i = 0; i < TUPLE_LENGTH; i++) {
+            index |= ((int) (cells >>> (4 * tuple[i])) & 0xF) << (4 * i);
+        }
+        return index;
+    }
+
+    /*************************************************************************/
+    /* Best Move Method */
+    /**
+     * This picks the move whose points plus the learned value of the board after it is highest.
+     *
+     * @param cells         The packed board
+     * @return Direction    The best move, or null if no move changes the board
+     */
+    public Direction bestMove(long cells){
+        Direction best = null;
+        float bestValue = 0;
+        for (Direction direction : DIRECTIONS) {
+            long after = BitBoard.move(cells, direction);
+            if (after == cells) {
+                continue;
+            }
+            float value = BitBoard.score(cells, direction) + evaluate(after);
+            if (best == null || value > bestValue) {
+                best = direction;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    /*************************************************************************/
+    /* Save and Load Methods */
+    /**
+     * This writes the tuples and weights to a binary file: a small header, the cell
+     * indexes of each tuple, then every weight as a 4 byte float.
+     *
+     * @param path          The file to write
+     * @throws IOException  If the file cannot be written
+     */
+    public void save(String path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(tuples.length);
+            for (int[] tuple : tuples) {
+                for (int cell : tuple) {
+                    out.writeByte(cell);
+                }
+            }
+            for (float[] table : weights) {
+                for (float weight : table) {
+                    out.writeFloat(weight);
+                }
+            }
+        }
+    }
+
+    /**
+     * This returns the weights file the games load, which can be changed with -Dntuple.weights=path.
+     *
+     * @return String   The path of the weights file
+     */
+    public static String getWeightsPath(){
+        return System.getProperty("ntuple.weights", DEFAULT_FILE);
+    }
+
+    /**
+     * This reads a network written by save.
+     *
+     * @param path              The file to read
+     * @return NTupleNetwork    The network stored in the file
+     * @throws IOException      If the file cannot be read or is not a weights file
+     */
+    public static NTupleNetwork load(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not an n-tuple weights file: " + path);
+            }
+            int count = in.readInt();
+            if (count < 1 || count > 64) {
+                throw new IOException("Bad tuple count in " + path);
+            }
+            int[][] tuples = new int[count][TUPLE_LENGTH];
+            for (int[] tuple : tuples) {
+                for (int i = 0; i < TUPLE_LENGTH; i++) {
+                    tuple[i] = in.readUnsignedByte();
+                }
+            }
+            NTupleNetwork network;
+            try {
+                network = new NTupleNetwork(tuples);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Bad tuple in " + path);
+            }
+            for (float[] table : network.weights) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = in.readFloat();
+                }
+            }
+            return network;
+        }
+    }
+}
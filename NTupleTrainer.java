@@ -0,0 +1,183 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * NTupleTrainer teaches an NTupleNetwork to play 4x4 games by temporal-difference
+ * learning on the boards left after each move. Several threads play games against
+ * themselves at once and update the shared weights without locks. A move only reads
+ * and writes primitive longs and the weight tables, so training allocates nothing
+ * per move. The games follow the same rules as GameController: the packed move
+ * tables in BitBoard, and a 2 or a 4 with equal odds in a random empty cell.
+ *
+ * Usage: java NTupleTrainer [games] [threads] [learningRate] [output] [input]
+ */
+public class NTupleTrainer {
+    /*************************************************************************/
+    /* Variables */
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int GOAL_EXPONENT = 11; // Games reaching 2048 are counted in the progress report
+    private NTupleNetwork network;
+    private float learningRate;
+    private AtomicLong gamesStarted = new AtomicLong();
+    // Totals read by the progress report
+    private LongAdder gamesDone = new LongAdder();
+    private LongAdder scoreTotal = new LongAdder();
+    private LongAdder movesTotal = new LongAdder();
+    private LongAdder goalReached = new LongAdder();
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a trainer for the given network.
+     *
+     * @param network       The network to train (its weights are changed in place)
+     * @param learningRate  How far each weight moves towards the target per update
+     */
+    public NTupleTrainer(NTupleNetwork network, float learningRate){
+        this.network = network;
+        this.learningRate = learningRate;
+    }
+
+    /*************************************************************************/
+    /* Train Method */
+    /**
+     * This plays the given number of training games on the given number of threads
+     * and prints progress once a second until they are done.
+     *
+     * @param games                 The number of games to play
+     * @param threads               The number of threads to play them on
+     * @throws InterruptedException If the waiting thread is interrupted
+     */
+    public void train(long games, int threads) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        CountDownLatch finished = new CountDownLatch(threads); // Counted down by every worker as it stops
+        for (int i = 0; i < threads; i++) {
+            long seed = System.nanoTime() + i * 0x9E3779B97F4A7C15L;
+            workers[i] = new Thread(() -> {
+                try {
+                    playGames(games, new SplittableRandom(seed));
+                } finally {
+                    finished.countDown();
+                }
+            }, "ntuple-trainer-" + i);
+            workers[i].start();
+        }
+        long start = System.nanoTime();
+        long lastTime = start;
+        long lastGames = 0;
+        long lastScore = 0;
+        long lastGoal = 0;
+        while (!finished.await(1, TimeUnit.SECONDS)) {
+            long now = System.nanoTime();
+            long done = gamesDone.sum();
+            long score = scoreTotal.sum();
+            long goal = goalReached.sum();
+            long played = done - lastGames;
+            if (played > 0) {
+                System.out.printf("%d games, %.0f games/sec, average score %.0f, reached 2048 in %.1f%%%n",
+                        done, played * 1e9 / (now - lastTime), (double) (score - lastScore) / played,
+                        100.0 * (goal - lastGoal) / played);
+            }
+            lastTime = now;
+            lastGames = done;
+            lastScore = score;
+            lastGoal = goal;
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Trained on %d games (%d moves) in %.1f s: %.0f games/sec, %.0f moves/sec%n",
+                gamesDone.sum(), movesTotal.sum(), seconds, gamesDone.sum() / seconds, movesTotal.sum() / seconds);
+    }
+
+    // Keeps claiming and playing games until the total is reached
+    private void playGames(long games, SplittableRandom rand){
+        while (gamesStarted.getAndIncrement() < games) {
+            playGame(rand);
+        }
+    }
+
+    // Plays one game, learning from every move. After each move the value of the previous
+    // afterstate is moved towards the reward of the next move plus the value of its afterstate.
+    private void playGame(SplittableRandom rand){
+        long cells = spawn(0, rand); // GameController starts a game with a single tile
+        long previous = 0; // Board after the previous move, once there is one
+        boolean hasPrevious = false;
+        int score = 0;
+        int moves = 0;
+        while (true) {
+            long bestAfter = 0;
+            int bestReward = 0;
+            float bestValue = 0;
+            boolean found = false;
+            for (Direction direction : DIRECTIONS) {
+                long after = BitBoard.move(cells, direction);
+                if (after == cells) {
+                    continue;
+                }
+                int reward = BitBoard.score(cells, direction);
+                float value = reward + network.evaluate(after);
+                if (!found || value > bestValue) {
+                    found = true;
+                    bestAfter = after;
+                    bestReward = reward;
+                    bestValue = value;
+                }
+            }
+            if (!found) {
+                // The game is over, so the last afterstate is worth nothing more
+                if (hasPrevious) {
+                    network.update(previous, learningRate * -network.evaluate(previous));
+                }
+                break;
+            }
+            if (hasPrevious) {
+                network.update(previous, learningRate * (bestValue - network.evaluate(previous)));
+            }
+            previous = bestAfter;
+            hasPrevious = true;
+            score += bestReward;
+            moves++;
+            cells = spawn(bestAfter, rand);
+        }
+        gamesDone.increment();
+        scoreTotal.add(score);
+        movesTotal.add(moves);
+        if (BitBoard.maxExponent(cells) >= GOAL_EXPONENT) {
+            goalReached.increment();
+        }
+    }
+
+    // Adds a 2 or a 4 to a random empty cell, the same way GameController.newTile does
+    private static long spawn(long cells, SplittableRandom rand){
+        int empty = BitBoard.countEmpty(cells);
+        int exponent = (rand.nextInt(2) == 1) ? 1 : 2;
+        return BitBoard.spawn(cells, rand.nextInt(empty), exponent);
+    }
+
+    /*************************************************************************/
+    /* Main Method */
+    /**
+     * This main method trains a network and saves it.
+     *
+     * @param args      [games] [threads] [learningRate] [output] [input]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long games = (args.length > 0) ? Long.parseLong(args[0]) : 100000;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        float learningRate = (args.length > 2) ? Float.parseFloat(args[2]) : 0.0025f;
+        String output = (args.length > 3) ? args[3] : NTupleNetwork.getWeightsPath();
+        // Training can carry on from a saved network
+        NTupleNetwork network = (args.length > 4 && new File(args[4]).exists())
+                ? NTupleNetwork.load(args[4]) : new NTupleNetwork();
+        new NTupleTrainer(network, learningRate).train(games, threads);
+        network.save(output);
+        System.out.println("Saved the weights to " + output);
+    }
+}
@@ -1,10 +1,11 @@
 import javax.swing.*;
-import javax.swing.border.Border;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.util.Map;
 
 /**
  * Panel2048 is the GUI panel that houses the model part of the 2048 game.
@@ -21,7 +22,6 @@ public class Panel2048 extends JPanel implements ActionListener, KeyListener {
     private int boardSize; // Obtained from user input - the size of the square board (# of rows/columns)
     private JLabel gamesPlayed; // Displays the counter for number of games played
     private JFrame frame;
-    private JLabel[][] lordBoard; // Array of JLabels which shows the board of the 2048 game; displays its tiles/numbers
     // Buttons to control the game
     private JButton up;
     private JButton down;
@@ -34,8 +34,20 @@ public class Panel2048 extends JPanel implements ActionListener, KeyListener {
     private JMenuBar menus;
     private int games; // Counts the number of games played
     private int winCounter; // Counts the number of wins
-    private JPanel tilePanel; // Panel to hold the board of the game (the lordBoard JLabel array object)
-    private GameController game; // Object to control the game logic
+    private BoardView boardView; // Draws the board of the game; displays its tiles/numbers
+    private GameController game; // Object to control the game logic, only used by the game loop thread once it starts
+    private GameLoop loop; // Applies the input to the game on its own thread and sends back snapshots to draw
+    private long shownSequence; // Number of the snapshot on screen
+    private boolean gameOver; // True while the win/loss message is showing
+    private boolean gameCounted; // True once this game is in the counters; undo does not clear it, only a new game does
+    private NTupleNetwork network; // Trained evaluator for the N key, loaded the first time it is used
+    private static final int UNDO_LIMIT = 1000; // Moves that can be taken back
+    // Set -Dgame.store=directory to keep the game and the counters between runs
+    private SessionStore store; // Saves the game and counters, null if they are not saved
+    private static final long SESSION_ID = 1;
+    private static final long GAMES_KEY = 1; // Counter keys in the store
+    private static final long WINS_KEY = 2;
+    private static final long COUNTED_KEY = 3; // 1 if the saved game is already in the counters
 
     /**
      * Creates the GUI panel for the 2048 game.
@@ -51,6 +63,12 @@ public class Panel2048 extends JPanel implements ActionListener, KeyListener {
         frame = new JFrame("2048 GAME");
         // Create the main game controller object that will control the game logic
         game = new GameController(boardSize, winSize);
+        game.setUndoLimit(UNDO_LIMIT);
+        if (System.getProperty("game.store") != null) {
+            openStore(System.getProperty("game.store"));
+        }
+        loop = new GameLoop(game, this::showSnapshot);
+        loop.setStore(store, SESSION_ID);
         // Create a side panel to hold the counters
         JPanel counterPanel = new JPanel();
         counterPanel.setLayout(new GridLayout(2,1));
@@ -101,15 +119,12 @@ public class Panel2048 extends JPanel implements ActionListener, KeyListener {
         separatePanel.add(down, BorderLayout.SOUTH);
         separatePanel.add(left, BorderLayout.WEST);
         separatePanel.add(right, BorderLayout.EAST);
-        // Create a new panel to hold the board tiles
-        tilePanel = new JPanel();
-        // Set the tilePanel to a grid layout, so it holds the square board of tiles
-        tilePanel.setLayout(new GridLayout(boardSize, boardSize, 2, 2));
-        // Instantiate lordBoard object and set the size
-        lordBoard = new JLabel[boardSize][boardSize];
-        // Add the counters and panels to the main panel
+        // Create the view that draws the board tiles
+        boardView = new BoardView(loop.getSnapshot());
+        // Add the counters, panels and board to the main panel
         this.add(counterPanel);
         this.add(separatePanel);
+        this.add(boardView);
         // Call displayBoard to refresh board
         displayBoard();
         // KeyListener to allow use of arrow keys to control the board
@@ -122,35 +137,52 @@ public class Panel2048 extends JPanel implements ActionListener, KeyListener {
         frame.getContentPane().add(this);
         frame.pack();
         frame.setVisible(true);
+        loop.start();
+    }
+
+    /**
+     * Loads the saved counters, and the saved game if it is unfinished and has the same
+     * board size and win value, from the store in the given directory.
+     *
+     * @param directory     The directory the store keeps its files in
+     */
+    private void openStore(String directory){
+        try {
+            SessionStore opened = new SessionStore(directory, SessionStore.DEFAULT_CHECKPOINT_RECORDS);
+            Map<Long, GameController> saved = opened.recover();
+            GameController savedGame = saved.get(SESSION_ID);
+            if (savedGame != null && savedGame.getBoard().getBoardSize() == boardSize
+                    && savedGame.getWinValue() == winSize && savedGame.getGameStatus() == GameStatus.IN_PROGRESS) {
+                game.copyFrom(savedGame);
+                gameCounted = opened.getCounter(COUNTED_KEY, 0) != 0; // It may have been won and then undone
+            }
+            opened.recordState(SESSION_ID, game);
+            opened.recordCounter(COUNTED_KEY, gameCounted ? 1 : 0);
+            games = (int) opened.getCounter(GAMES_KEY, 0);
+            winCounter = (int) opened.getCounter(WINS_KEY, 0);
+            // Write out the last moves when the window closes
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    opened.close();
+                } catch (IOException e) {
+                    // Nothing more can be saved while exiting
+                }
+            }));
+            store = opened;
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Could not open the saved games in " + directory
+                    + ". This game will not be saved.", "ERROR", JOptionPane.ERROR_MESSAGE);
+        }
     }
     /*************************************************************************/
     /* displayBoard Method */
 
     /**
-     * This updates the JLabel array on the GUI panel to have it hold and display the current values in the board.
+     * This updates the board view on the GUI panel to display the newest snapshot of the board.
+     * Only the cells that changed are repainted.
      */
     public void displayBoard(){
-        tilePanel.removeAll(); // Reset the tile panel
-        Border border = BorderFactory.createLineBorder(Color.BLACK, 2); // Create a border for the tiles of the board
-        // Cycle through the rows and columns of the board to update the JLabel array with the values from the linked list
-        for (int row = 0; row < boardSize; row++) {
-            for (int col = 0; col < boardSize; col++) {
-                if(game.getBoard().getValue(row,col)==-1){ // If the tile is empty
-                    lordBoard[row][col] = new JLabel(" 0 ", SwingConstants.CENTER);
-                }
-                else{
-                    lordBoard[row][col] = new JLabel(String.valueOf(game.getBoard().getValue(row,col)), SwingConstants.CENTER);
-                }
-                // Set the size of the JLabel and make it square
-                lordBoard[row][col].setPreferredSize(new Dimension(100, 100));
-                lordBoard[row][col].setFont(new Font("Serif", Font.PLAIN, 50));
-                lordBoard[row][col].setBorder(border); // Set the border for the tiles of the board
-                tilePanel.add(lordBoard[row][col]);
-            }
-        }
-        this.add(tilePanel); // Re-add the tile panel
-        revalidate();
-        repaint();
+        boardView.show(loop.getSnapshot(), false);
     }
     /*************************************************************************/
     /* Main Method to Run GUI */
@@ -231,53 +263,87 @@ public class Panel2048 extends JPanel implements ActionListener, KeyListener {
             System.exit(0);
         }
         if (e.getSource() == up) {
-            game.recurseUp(1);
-            runner(); // Calling this method will refresh/update the board in the display and check for a win/loss.
+            move(Direction.UP);
         }
         if (e.getSource() == down) {
-            game.recurseDown(boardSize - 2);
-            runner();
+            move(Direction.DOWN);
         }
         if (e.getSource() == left) {
-            game.recurseLeft(1);
-            runner();
+            move(Direction.LEFT);
         }
         if (e.getSource() == right) {
-            game.recurseRight(boardSize - 2);
-            runner();
+            move(Direction.RIGHT);
         }
         if (e.getSource() == reset) {
-            game.reset();
-            displayBoard();
+            newGame();
         }
     }
 
     /**
-     * Refreshes the board and checks for a win/loss, resetting the board and adding to relevant counters if necessary.
+     * Sends a move to the game loop. Once a game is over the next move starts a new one instead.
+     *
+     * @param direction     The direction to move the tiles in
      */
-    public void runner(){
-        displayBoard();
-        if (game.getBoard().hasEmpty() && game.getGameStatus() == GameStatus.IN_PROGRESS) {
-            game.newTile();
-            displayBoard();
+    private void move(Direction direction){
+        if (gameOver) {
+            newGame();
+        } else {
+            loop.submit(direction);
+        }
+    }
+
+    /**
+     * Asks the game loop for a new game, which may be counted once it ends.
+     */
+    private void newGame(){
+        if (loop.submit(GameLoop.Command.RESET) && gameCounted) {
+            gameCounted = false;
+            if (store != null) {
+                store.recordCounter(COUNTED_KEY, 0);
+            }
         }
-        else if (game.getGameStatus() == GameStatus.WON) {
-            JOptionPane.showMessageDialog(null,"CONGRATS, YOU WON!");
-            super.update(this.getGraphics());
-            game.reset();
-            displayBoard();
-            winCounter++;
-            games++;
-            gamesPlayed.setText("Games Played = " + games);
-            wins.setText("Wins = " + winCounter);
+    }
+
+    /**
+     * Shows a snapshot sent back by the game loop, animating it if it follows straight on from
+     * the one on screen, and updates the counters and the win/loss message when a game ends.
+     * Runs on the event dispatch thread.
+     *
+     * @param snapshot      The newest state of the game
+     */
+    private void showSnapshot(BoardSnapshot snapshot){
+        if (snapshot.getSequence() <= shownSequence) {
+            return; // Already on screen
         }
-        else if (game.getGameStatus() == GameStatus.LOST) {
-            JOptionPane.showMessageDialog(null,"MAYBE NEXT TIME! YOU LOST!");
-            super.update(this.getGraphics());
-            game.reset();
-            games++;
-            gamesPlayed.setText("Games Played = " + games);
-            displayBoard();
+        // If moves came in faster than they were drawn, skip straight to the newest board
+        boardView.show(snapshot, snapshot.getSequence() == shownSequence + 1);
+        shownSequence = snapshot.getSequence();
+        if (!gameOver && snapshot.getStatus() != GameStatus.IN_PROGRESS) {
+            gameOver = true;
+            if (snapshot.getStatus() == GameStatus.WON) {
+                boardView.setOverlay("CONGRATS, YOU WON!", "Press an arrow key to play again");
+            } else {
+                boardView.setOverlay("MAYBE NEXT TIME! YOU LOST!", "Press an arrow key to play again");
+            }
+            // A game finished again after an undo was already counted
+            if (!gameCounted) {
+                gameCounted = true;
+                games++;
+                if (snapshot.getStatus() == GameStatus.WON) {
+                    winCounter++;
+                }
+                gamesPlayed.setText("Games Played = " + games);
+                wins.setText("Wins = " + winCounter);
+                if (store != null) {
+                    store.recordCounter(GAMES_KEY, games);
+                    store.recordCounter(WINS_KEY, winCounter);
+                    store.recordCounter(COUNTED_KEY, 1);
+                }
+            }
+        } else if (gameOver && snapshot.getStatus() == GameStatus.IN_PROGRESS) {
+            // A new game started, or the last move was undone
+            gameOver = false;
+            boardView.setOverlay(null, null);
         }
     }
 
@@ -306,20 +372,52 @@ public class Panel2048 extends JPanel implements ActionListener, KeyListener {
     public void keyReleased(KeyEvent e) {
         int key = e.getKeyCode();
         if(key == 38){
-            game.recurseUp(1);
-            runner();
+            move(Direction.UP);
         }
         if(key == 37){
-            game.recurseLeft(1);
-            runner();
+            move(Direction.LEFT);
         }
         if(key == 40){
-            game.recurseDown(boardSize - 2);
-            runner();
+            move(Direction.DOWN);
         }
         if(key == 39){
-            game.recurseRight(boardSize - 2);
-            runner();
+            move(Direction.RIGHT);
+        }
+        if(key == KeyEvent.VK_N){
+            networkMove();
+        }
+        // U or Ctrl+Z takes back a move, R or Ctrl+Y makes it again
+        if(key == KeyEvent.VK_U || (key == KeyEvent.VK_Z && e.isControlDown())){
+            loop.submit(GameLoop.Command.UNDO);
+        }
+        if(key == KeyEvent.VK_R || (key == KeyEvent.VK_Y && e.isControlDown())){
+            loop.submit(GameLoop.Command.REDO);
+        }
+    }
+
+    /**
+     * Lets the trained n-tuple network make the next move (4x4 boards only).
+     * The network is loaded from NTupleNetwork.getWeightsPath() the first time.
+     */
+    public void networkMove(){
+        // The game is only touched by the loop thread, so check the settings it was made with
+        if (boardSize != BitBoard.SIZE || winSize > (1 << BitBoard.MAX_EXPONENT)) {
+            JOptionPane.showMessageDialog(null, "The n-tuple network only plays 4x4 boards.");
+            return;
+        }
+        if (network == null) {
+            try {
+                network = NTupleNetwork.load(NTupleNetwork.getWeightsPath());
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(null, "Could not load " + NTupleNetwork.getWeightsPath()
+                        + ". Run NTupleTrainer first.", "ERROR", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            NTupleNetwork loaded = network;
+            loop.setPolicy(current -> loaded.bestMove(current.getBoard().getPackedCells()));
+        }
+        if (!gameOver) {
+            loop.submit(GameLoop.Command.POLICY); // The move is picked on the loop thread from the live board
         }
     }
 }
@@ -0,0 +1,43 @@
+import java.util.Random;
+
+/**
+ * RandomPolicy picks a random direction out of the ones that would change the board.
+ */
+public class RandomPolicy implements MovePolicy {
+    /*************************************************************************/
+    /* Variables */
+    private static final Direction[] DIRECTIONS = Direction.values(); // Cached since values() copies the array
+    private Random rand;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a random policy that draws from the given generator.
+     *
+     * @param rand      The random number generator to pick directions with
+     */
+    public RandomPolicy(Random rand){
+        this.rand = rand;
+    }
+
+    /*************************************************************************/
+    /* Choose Move Method */
+    /**
+     * This picks a random direction that changes the board, or any direction if none do.
+     *
+     * @param game          The game to pick a move for
+     * @return Direction    The direction to move the tiles in
+     */
+    @Override
+    public Direction chooseMove(GameController game){
+        // Start at a random direction and walk around until one of them moves
+        int first = rand.nextInt(DIRECTIONS.length);
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            Direction direction = DIRECTIONS[(first + i) % DIRECTIONS.length];
+            if (game.canMove(direction)) {
+                return direction;
+            }
+        }
+        return DIRECTIONS[first];
+    }
+}
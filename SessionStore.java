@@ -0,0 +1,690 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * SessionStore saves games so they survive a restart or a crash. Every change is added
+ * to an append-only journal: a move takes 16 bytes (the direction and where the new tile
+ * spawned), and anything else (a new game, an undo, a reset) saves the whole board. One
+ * writer thread writes whatever has piled up since its last write and syncs it to disk
+ * with a single fsync, so many sessions share each sync (group commit).
+ *
+ * The writer also keeps its own copy of every game, built from the records it writes.
+ * After a set number of records it saves that copy as a snapshot - written to a
+ * temporary file, synced, then renamed over the old one so a crash never leaves half a
+ * snapshot - and starts a new journal. Recovery loads the latest snapshot and replays
+ * the journal written after it, so it never reads more than one snapshot and the records
+ * since, however long the games have run. A record torn by a crash fails its checksum
+ * and the journal is cut off just before it.
+ *
+ * Usage: java SessionStore [directory] [sessions] [moves] [threads]
+ */
+public class SessionStore implements AutoCloseable {
+    /*************************************************************************/
+    /* Variables */
+    public static final int DEFAULT_CHECKPOINT_RECORDS = 100000;
+    private static final int MAGIC = 0x32303453; // "204S"
+    private static final int FILE_VERSION = 1;
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final String SNAPSHOT_TEMP = "snapshot.tmp";
+    // Record types. Every record is the type, the session id (or counter key), what
+    // follows for its type, and a CRC32 of all of that.
+    private static final byte STATE = 1; // boardSize, winExponent, status, score, cells
+    private static final byte MOVE = 2; // direction, spawn cell (-1 for none), spawn exponent
+    private static final byte REMOVE = 3;
+    private static final byte COUNTER = 4; // value
+    private static final int RECORD_HEADER = 9;
+    private static final int CRC_BYTES = 4;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final GameStatus[] STATUSES = GameStatus.values();
+    private Path directory;
+    private int checkpointRecords; // Records between snapshots
+    // A lock rather than synchronized, so callers on virtual threads do not pin their carrier while waiting
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition recordsAdded = lock.newCondition(); // Signalled when pending stops being empty
+    private final Condition recordsSynced = lock.newCondition(); // Signalled when durable moves on or the writer fails
+    // Records waiting for the writer, guarded by lock
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer writing = ByteBuffer.allocate(1 << 16); // Swapped with pending by the writer
+    private CRC32 crc = new CRC32(); // Used by appenders while holding lock
+    private long appended; // Records added so far
+    private long durable; // Records synced to disk so far
+    private boolean closing;
+    private IOException failure; // Set if the writer failed; nothing more can be saved
+    private Thread writer;
+    // Only used by the writer thread once recover returns
+    private FileChannel journal;
+    private long generation; // Number of the journal that follows the current snapshot
+    private long recordsSinceCheckpoint;
+    private Map<Long, GameController> games = new HashMap<Long, GameController>();
+    private Map<Long, Long> savedCounters = new HashMap<Long, Long>();
+    private CRC32 writerCrc = new CRC32();
+    // Counters as last recorded, readable from any thread
+    private Map<Long, Long> counters = new ConcurrentHashMap<Long, Long>();
+    // Statistics
+    private volatile long journalBytes;
+    private volatile long snapshotBytes;
+    private volatile long syncs;
+    private volatile long checkpoints;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a store that keeps its files in a directory. Nothing is read or
+     * written until recover is called.
+     *
+     * @param directory         The directory for the snapshot and journal (created if needed)
+     * @param checkpointRecords How many records to journal before writing a new snapshot
+     */
+    public SessionStore(String directory, int checkpointRecords){
+        if (checkpointRecords < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.directory = Paths.get(directory);
+        this.checkpointRecords = checkpointRecords;
+    }
+
+    /*************************************************************************/
+    /* Recovery Methods */
+    /**
+     * This loads the latest snapshot, replays the journal after it and starts the writer.
+     * It must be called once before anything is recorded.
+     *
+     * @return Map<Long, GameController>   A copy of every saved game by session id
+     * @throws IOException  If the files cannot be read or the snapshot is damaged
+     */
+    public Map<Long, GameController> recover() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("Already recovered");
+        }
+        Files.createDirectories(directory);
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            readSnapshot(snapshot);
+        }
+        // Journals older than the snapshot are already in it; one may be left if a crash came right after a checkpoint
+        for (long old = generation - 1; old >= 0 && Files.deleteIfExists(journalPath(old)); old--) {
+            // Keep going back until there are none left
+        }
+        Path path = journalPath(generation);
+        journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (journal.size() > Integer.MAX_VALUE) {
+            throw new IOException(path + " is too big");
+        }
+        ByteBuffer records = ByteBuffer.allocate((int) journal.size());
+        while (records.hasRemaining() && journal.read(records) >= 0) {
+            // Read the whole journal
+        }
+        records.flip();
+        int valid = applyRecords(records);
+        // Anything after the last good record was torn by a crash
+        journal.truncate(valid);
+        journal.position(valid);
+        journalBytes = valid;
+        Map<Long, GameController> copies = new HashMap<Long, GameController>();
+        for (Map.Entry<Long, GameController> entry : games.entrySet()) {
+            copies.put(entry.getKey(), copyGame(entry.getValue()));
+        }
+        counters.putAll(savedCounters);
+        writer = new Thread(this::writeLoop, "session-store");
+        writer.setDaemon(true);
+        writer.start();
+        return copies;
+    }
+
+    // Loads every game and counter in a snapshot file
+    private void readSnapshot(Path path) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not a session snapshot: " + path);
+            }
+            generation = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                int boardSize = in.readByte();
+                int winExponent = in.readByte();
+                GameStatus status = STATUSES[in.readByte()];
+                int score = in.readInt();
+                byte[] cells = new byte[boardSize * boardSize];
+                in.readFully(cells);
+                games.put(id, newGame(boardSize, winExponent, status, score, cells, 0));
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                savedCounters.put(in.readLong(), in.readLong());
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readInt() != (int) expected) {
+                throw new IOException("Damaged session snapshot: " + path);
+            }
+        } catch (EOFException | ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Damaged session snapshot: " + path, e);
+        }
+    }
+
+    // Applies records to the writer's copy of the games until the buffer ends or a record
+    // is cut short or fails its checksum, and returns how many bytes were good
+    private int applyRecords(ByteBuffer records){
+        int start = records.position();
+        while (records.remaining() > RECORD_HEADER) {
+            int recordStart = records.position();
+            byte type = records.get(recordStart);
+            int length;
+            switch (type) {
+                case STATE:
+                    int boardSize = records.get(recordStart + RECORD_HEADER);
+                    if (boardSize < 4 || boardSize > 10) {
+                        return recordStart - start;
+                    }
+                    length = RECORD_HEADER + 7 + boardSize * boardSize;
+                    break;
+                case MOVE:
+                    length = RECORD_HEADER + 3;
+                    break;
+                case REMOVE:
+                    length = RECORD_HEADER;
+                    break;
+                case COUNTER:
+                    length = RECORD_HEADER + 8;
+                    break;
+                default:
+                    return recordStart - start;
+            }
+            if (records.remaining() < length + CRC_BYTES) {
+                break;
+            }
+            writerCrc.reset();
+            writerCrc.update(records.array(), records.arrayOffset() + recordStart, length);
+            if (records.getInt(recordStart + length) != (int) writerCrc.getValue()) {
+                break;
+            }
+            records.get(); // Type, read above
+            long id = records.getLong();
+            switch (type) {
+                case STATE:
+                    int boardSize = records.get();
+                    int winExponent = records.get();
+                    GameStatus status = STATUSES[records.get()];
+                    int score = records.getInt();
+                    games.put(id, newGame(boardSize, winExponent, status, score, records.array(),
+                            records.arrayOffset() + records.position()));
+                    records.position(records.position() + boardSize * boardSize);
+                    break;
+                case MOVE:
+                    Direction direction = DIRECTIONS[records.get()];
+                    int spawnCell = records.get();
+                    int spawnExponent = records.get();
+                    GameController game = games.get(id);
+                    if (game != null) {
+                        game.move(direction);
+                        if (spawnCell >= 0) {
+                            game.getBoard().setCell(spawnCell, spawnExponent);
+                        }
+                    }
+                    break;
+                case REMOVE:
+                    games.remove(id);
+                    break;
+                default:
+                    savedCounters.put(id, records.getLong());
+                    break;
+            }
+            records.getInt(); // CRC, checked above
+            recordsSinceCheckpoint++;
+        }
+        return records.position() - start;
+    }
+
+    // Builds a game from saved state
+    private static GameController newGame(int boardSize, int winExponent, GameStatus status, int score,
+                                          byte[] cells, int offset){
+        GameController game = new GameController(boardSize, 1 << winExponent, 0L);
+        Board board = game.getBoard();
+        for (int i = 0; i < boardSize * boardSize; i++) {
+            board.setCell(i, cells[offset + i]);
+        }
+        game.setScore(score);
+        game.setGameStatus(status);
+        return game;
+    }
+
+    // Copies a game so the caller and the writer never share one
+    private static GameController copyGame(GameController game){
+        GameController copy = new GameController(game.getBoard().getBoardSize(), game.getWinValue(), 0L);
+        copy.copyFrom(game);
+        return copy;
+    }
+
+    private Path journalPath(long journalGeneration){
+        return directory.resolve("journal-" + journalGeneration + ".log");
+    }
+
+    /*************************************************************************/
+    /* Record Methods */
+    /**
+     * This saves the whole state of a game: use it for a new game and after anything
+     * other than a move, such as an undo or a reset.
+     *
+     * @param id        The session id
+     * @param game      The game, which must not change while this runs
+     * @return long     The number to pass to awaitDurable to wait until this is on disk
+     */
+    public long recordState(long id, GameController game){
+        lock.lock();
+        try {
+            Board board = game.getBoard();
+            int cells = board.getBoardSize() * board.getBoardSize();
+            int start = begin(STATE, id, 7 + cells);
+            pending.put((byte) board.getBoardSize());
+            pending.put((byte) Integer.numberOfTrailingZeros(game.getWinValue()));
+            pending.put((byte) game.getGameStatus().ordinal());
+            pending.putInt(game.getScore());
+            for (int i = 0; i < cells; i++) {
+                pending.put((byte) board.getCell(i));
+            }
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This saves a move that was just made, with the tile that spawned after it.
+     *
+     * @param id            The session id
+     * @param direction     The direction moved
+     * @param game          The game after the move and its new tile (see GameController.getLastSpawnCell)
+     * @return long         The number to pass to awaitDurable to wait until this is on disk
+     */
+    public long recordMove(long id, Direction direction, GameController game){
+        lock.lock();
+        try {
+            int spawnCell = game.getLastSpawnCell();
+            int start = begin(MOVE, id, 3);
+            pending.put((byte) direction.ordinal());
+            pending.put((byte) spawnCell);
+            pending.put((byte) ((spawnCell < 0) ? 0 : game.getBoard().getCell(spawnCell)));
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This forgets a game.
+     *
+     * @param id        The session id
+     * @return long     The number to pass to awaitDurable to wait until this is on disk
+     */
+    public long recordRemove(long id){
+        lock.lock();
+        try {
+            return end(begin(REMOVE, id, 0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This saves a counter, such as the number of games won.
+     *
+     * @param key       Any number that names the counter
+     * @param value     The value of the counter
+     * @return long     The number to pass to awaitDurable to wait until this is on disk
+     */
+    public long recordCounter(long key, long value){
+        lock.lock();
+        try {
+            int start = begin(COUNTER, key, 8);
+            pending.putLong(value);
+            counters.put(key, value);
+            return end(start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This returns a counter as it was last recorded or recovered.
+     *
+     * @param key           The key the counter was recorded with
+     * @param defaultValue  The value to return if it was never recorded
+     * @return long         The value of the counter
+     */
+    public long getCounter(long key, long defaultValue){
+        Long value = counters.get(key);
+        return (value == null) ? defaultValue : value;
+    }
+
+    // Starts a record, making room for it, and returns where it starts
+    private int begin(byte type, long id, int bodyBytes){
+        if (writer == null || closing) {
+            throw new IllegalStateException("The store is not open");
+        }
+        if (pending.remaining() < RECORD_HEADER + bodyBytes + CRC_BYTES) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + 256));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        int start = pending.position();
+        pending.put(type);
+        pending.putLong(id);
+        return start;
+    }
+
+    // Adds the checksum to the record started at start and wakes the writer
+    private long end(int start){
+        crc.reset();
+        crc.update(pending.array(), start, pending.position() - start);
+        pending.putInt((int) crc.getValue());
+        appended++;
+        if (start == 0) {
+            recordsAdded.signal(); // The writer may be waiting for records
+        }
+        return appended;
+    }
+
+    /**
+     * This waits until a record is synced to disk.
+     *
+     * @param record        The number returned when the record was added
+     * @throws IOException  If the writer failed before the record was saved
+     * @throws InterruptedException     If the thread is interrupted while waiting
+     */
+    public void awaitDurable(long record) throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            while (durable < record && failure == null) {
+                recordsSynced.await();
+            }
+            if (durable < record) {
+                throw new IOException("The session store failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*************************************************************************/
+    /* Writer Methods */
+    // Writes and syncs whatever records have piled up, then applies them and checkpoints when due
+    private void writeLoop(){
+        try {
+            while (true) {
+                long batchEnd;
+                lock.lock();
+                try {
+                    while (pending.position() == 0 && !closing) {
+                        recordsAdded.await();
+                    }
+                    if (pending.position() == 0) {
+                        break;
+                    }
+                    // Take every record so far; appenders carry on in the other buffer
+                    ByteBuffer swap = writing;
+                    writing = pending;
+                    pending = swap;
+                    pending.clear();
+                    batchEnd = appended;
+                } finally {
+                    lock.unlock();
+                }
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    journal.write(writing);
+                }
+                journal.force(false);
+                syncs++;
+                journalBytes += writing.limit();
+                lock.lock();
+                try {
+                    durable = batchEnd;
+                    recordsSynced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                writing.flip(); // Back to the start of the records just written
+                applyRecords(writing);
+                writing.clear();
+                if (recordsSinceCheckpoint >= checkpointRecords) {
+                    checkpoint();
+                }
+            }
+            journal.close();
+        } catch (IOException e) {
+            lock.lock();
+            try {
+                failure = e;
+                recordsSynced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            // Stopped without closing; whatever was synced is kept
+        }
+    }
+
+    // Saves every game in a new snapshot and moves on to a new, empty journal
+    private void checkpoint() throws IOException {
+        long next = generation + 1;
+        FileChannel nextJournal = FileChannel.open(journalPath(next), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        Path temp = directory.resolve(SNAPSHOT_TEMP);
+        FileOutputStream file = new FileOutputStream(temp.toFile());
+        CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+        try (DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(next);
+            out.writeInt(games.size());
+            for (Map.Entry<Long, GameController> entry : games.entrySet()) {
+                GameController game = entry.getValue();
+                Board board = game.getBoard();
+                out.writeLong(entry.getKey());
+                out.writeByte(board.getBoardSize());
+                out.writeByte(Integer.numberOfTrailingZeros(game.getWinValue()));
+                out.writeByte(game.getGameStatus().ordinal());
+                out.writeInt(game.getScore());
+                for (int i = 0; i < board.getBoardSize() * board.getBoardSize(); i++) {
+                    out.writeByte(board.getCell(i));
+                }
+            }
+            out.writeInt(savedCounters.size());
+            for (Map.Entry<Long, Long> entry : savedCounters.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            file.getChannel().force(true);
+            snapshotBytes += file.getChannel().size();
+        }
+        // The rename is atomic, so recovery sees either the old snapshot or the whole new one
+        Files.move(temp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        journal.close();
+        Files.deleteIfExists(journalPath(generation));
+        journal = nextJournal;
+        generation = next;
+        recordsSinceCheckpoint = 0;
+        checkpoints++;
+    }
+
+    // Syncs the directory so the rename and the new journal survive a crash (not possible on every platform)
+    private void syncDirectory(){
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Windows cannot open a directory; the rename is still atomic there
+        }
+    }
+
+    /**
+     * This writes and syncs every record added so far and stops the writer.
+     *
+     * @throws IOException  If the writer failed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (writer == null || closing) {
+                return;
+            }
+            closing = true;
+            recordsAdded.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns the number of bytes written to journals.
+     *
+     * @return long     Journal bytes, including what was recovered
+     */
+    public long getJournalBytes() {
+        return journalBytes;
+    }
+
+    /**
+     * This returns the number of bytes written to snapshots.
+     *
+     * @return long     Snapshot bytes since the store was opened
+     */
+    public long getSnapshotBytes() {
+        return snapshotBytes;
+    }
+
+    /**
+     * This returns the number of times the journal was synced to disk.
+     *
+     * @return long     The number of fsyncs; each covers every record added since the one before
+     */
+    public long getSyncCount() {
+        return syncs;
+    }
+
+    /**
+     * This returns the number of snapshots written.
+     *
+     * @return long     The number of checkpoints since the store was opened
+     */
+    public long getCheckpointCount() {
+        return checkpoints;
+    }
+
+    /*************************************************************************/
+    /* Main Method */
+    /**
+     * This main method plays random moves on many sessions from several threads, each
+     * waiting for its moves to be synced, then reopens the store and checks that every
+     * game comes back the same.
+     *
+     * @param args      [directory] [sessions] [moves] [threads]
+     */
+    public static void main(String[] args) throws Exception {
+        String directory = (args.length > 0) ? args[0] : "sessions";
+        int sessions = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        int moves = (args.length > 2) ? Integer.parseInt(args[2]) : 200000;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : 8;
+        if (threads < 1 || sessions < threads) {
+            throw new IllegalArgumentException("Need at least one thread and at least one session per thread");
+        }
+        SessionStore store = new SessionStore(directory, DEFAULT_CHECKPOINT_RECORDS);
+        Map<Long, GameController> games = store.recover();
+        System.out.println("Found " + games.size() + " saved sessions");
+        for (long id = 0; id < sessions; id++) {
+            if (!games.containsKey(id)) {
+                GameController game = new GameController(4, 2048, id);
+                games.put(id, game);
+                store.recordState(id, game);
+            }
+        }
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                SplittableRandom rand = new SplittableRandom(first);
+                try {
+                    // Each thread owns the sessions with id % threads == first
+                    for (int i = 0; i < moves / threads; i++) {
+                        long id = first + (long) threads * rand.nextInt((sessions - first + threads - 1) / threads);
+                        GameController game = games.get(id);
+                        Direction direction = DIRECTIONS[rand.nextInt(DIRECTIONS.length)];
+                        long record;
+                        if (game.getGameStatus() != GameStatus.IN_PROGRESS) {
+                            game.reset();
+                            record = store.recordState(id, game);
+                        } else if (game.move(direction).isMoved()) {
+                            game.newTile();
+                            record = store.recordMove(id, direction, game);
+                        } else {
+                            continue;
+                        }
+                        store.awaitDurable(record);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        store.close();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d moves in %.2f s (%.0f/sec) with %d fsyncs; %d journal bytes, %d snapshot bytes, %d checkpoints%n",
+                moves, seconds, moves / seconds, store.getSyncCount(), store.getJournalBytes(),
+                store.getSnapshotBytes(), store.getCheckpointCount());
+        start = System.nanoTime();
+        SessionStore reopened = new SessionStore(directory, DEFAULT_CHECKPOINT_RECORDS);
+        Map<Long, GameController> recovered = reopened.recover();
+        seconds = (System.nanoTime() - start) / 1e9;
+        int different = 0;
+        for (Map.Entry<Long, GameController> entry : games.entrySet()) {
+            GameController copy = recovered.get(entry.getKey());
+            if (copy == null || !copy.getBoard().equals(entry.getValue().getBoard())
+                    || copy.getScore() != entry.getValue().getScore()) {
+                different++;
+            }
+        }
+        reopened.close();
+        System.out.printf("Recovered %d sessions in %.3f s, %d different%n", recovered.size(), seconds, different);
+    }
+}
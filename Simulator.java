@@ -0,0 +1,240 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulator plays many games of 2048 without a GUI or keyboard, using a MovePolicy
+ * to pick each move. The games are split across every core with fork/join and the
+ * results are summed up into throughput numbers and distributions of the largest
+ * tile and the game length.
+ *
+ * Usage: java Simulator [games] [boardSize] [winValue] [random|greedy|corner] [threads] [seed]
+ */
+public class Simulator {
+    /*************************************************************************/
+    /* Variables */
+    private static final int BATCH_SIZE = 16; // Games played by one task before it stops splitting
+    private static final int MAX_MOVES = 1000000; // Games longer than this are stopped and counted as unfinished
+    private int games;
+    private int boardSize;
+    private int winValue;
+    private String policy;
+    private long seed;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a simulator for a batch of games.
+     *
+     * @param games         The number of games to play
+     * @param boardSize     An integer between 4 and 10 for the size of the square board (# of rows/columns)
+     * @param winValue      The number to reach in order to win the game - some power of 2.
+     * @param policy        The name of the move policy (random, greedy or corner)
+     * @param seed          Seed for the random number generators, so runs can be repeated
+     */
+    public Simulator(int games, int boardSize, int winValue, String policy, long seed){
+        if (games < 1 || boardSize < 4 || boardSize > 10) {
+            throw new IllegalArgumentException();
+        }
+        new Tile(winValue); // Check that the win value is a power of two - will throw an exception if not
+        newPolicy(policy, new Random()); // Check the policy name - will throw an exception if unknown
+        this.games = games;
+        this.boardSize = boardSize;
+        this.winValue = winValue;
+        this.policy = policy;
+        this.seed = seed;
+    }
+
+    /*************************************************************************/
+    /* Run Method */
+    /**
+     * This plays every game on the given pool and waits for them to finish.
+     *
+     * @param pool      The fork/join pool to run the games on
+     * @return Stats    The combined results of every game
+     */
+    public Stats run(ForkJoinPool pool){
+        return pool.invoke(new Batch(0, games));
+    }
+
+    /**
+     * This creates a new instance of a move policy from its name.
+     *
+     * @param name          random, greedy or corner
+     * @param rand          The random number generator the policy may draw from
+     * @return MovePolicy   A new policy instance
+     */
+    public static MovePolicy newPolicy(String name, Random rand){
+        switch (name.toLowerCase()) {
+            case "random":
+                return new RandomPolicy(rand);
+            case "greedy":
+                return new GreedyPolicy();
+            case "corner":
+                return new CornerPolicy();
+            default:
+                throw new IllegalArgumentException("Unknown policy: " + name);
+        }
+    }
+
+    /*************************************************************************/
+    /* Batch Task */
+    // Splits a range of games in half until it is small enough to play on one thread
+    private class Batch extends RecursiveTask<Stats> {
+        private static final long serialVersionUID = 1L;
+        private final int first; // Index of the first game in the range
+        private final int last; // Index one past the last game in the range
+
+        Batch(int first, int last){
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Stats compute(){
+            if (last - first <= BATCH_SIZE) {
+                return play();
+            }
+            int middle = (first + last) >>> 1;
+            Batch left = new Batch(first, middle);
+            left.fork();
+            Stats stats = new Batch(middle, last).compute();
+            stats.add(left.join());
+            return stats;
+        }
+
+        // Plays the games in this range with one controller and policy, reset between games
+        private Stats play(){
+            Stats stats = new Stats();
+            // Each range gets its own generator so results do not depend on how the work was split
+            Random rand = new Random(seed + first * 0x9E3779B97F4A7C15L);
+            MovePolicy movePolicy = newPolicy(policy, rand);
+            GameController game = new GameController(boardSize, winValue, rand);
+            for (int i = first; i < last; i++) {
+                if (i != first) {
+                    game.reset();
+                }
+                int moves = 0;
+                while (game.getGameStatus() == GameStatus.IN_PROGRESS && moves < MAX_MOVES) {
+                    // Moves that change nothing are not counted and do not spawn a tile
+                    if (game.move(movePolicy.chooseMove(game)).isMoved()) {
+                        game.newTile();
+                        moves++;
+                    }
+                }
+                stats.record(game.getGameStatus(), moves, game.getBoard().getMaxExponent());
+            }
+            return stats;
+        }
+    }
+
+    /*************************************************************************/
+    /* Stats Class */
+    /**
+     * Stats holds the totals of a batch of games, which are added together as the batches finish.
+     */
+    public static class Stats {
+        private long games;
+        private long wins;
+        private long unfinished; // Games stopped after MAX_MOVES
+        private long moves;
+        private long[] maxTiles = new long[32]; // Number of games by the exponent of their largest tile
+        private long[] lengths = new long[32]; // Number of games by floor(log2(moves))
+
+        // Adds one finished game to the totals
+        private void record(GameStatus status, int gameMoves, int maxExponent){
+            games++;
+            if (status == GameStatus.WON) {
+                wins++;
+            } else if (status == GameStatus.IN_PROGRESS) {
+                unfinished++;
+            }
+            moves += gameMoves;
+            maxTiles[maxExponent]++;
+            lengths[gameMoves == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(gameMoves)]++;
+        }
+
+        // Adds the totals of another batch to this one
+        private void add(Stats other){
+            games += other.games;
+            wins += other.wins;
+            unfinished += other.unfinished;
+            moves += other.moves;
+            for (int i = 0; i < maxTiles.length; i++) {
+                maxTiles[i] += other.maxTiles[i];
+                lengths[i] += other.lengths[i];
+            }
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getWins() {
+            return wins;
+        }
+
+        public long getMoves() {
+            return moves;
+        }
+
+        /**
+         * This builds a report of the totals.
+         *
+         * @param elapsedNanos  How long the games took, for the throughput numbers
+         * @return String       The report, one figure per line
+         */
+        public String report(long elapsedNanos){
+            double seconds = elapsedNanos / 1e9;
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("Time: %.3f s%n", seconds));
+            out.append(String.format("Games/sec: %.1f%n", games / seconds));
+            out.append(String.format("Moves/sec: %.1f%n", moves / seconds));
+            out.append(String.format("Win rate: %.2f%% (%d of %d)%n", 100.0 * wins / games, wins, games));
+            if (unfinished > 0) {
+                out.append(String.format("Unfinished (over %d moves): %d%n", MAX_MOVES, unfinished));
+            }
+            out.append(String.format("Average moves per game: %.1f%n", (double) moves / games));
+            out.append("Max tile distribution:").append(System.lineSeparator());
+            for (int i = 0; i < maxTiles.length; i++) {
+                if (maxTiles[i] > 0) {
+                    out.append(String.format("%10d: %d (%.2f%%)%n", 1L << i, maxTiles[i], 100.0 * maxTiles[i] / games));
+                }
+            }
+            out.append("Game length distribution (moves):").append(System.lineSeparator());
+            for (int i = 0; i < lengths.length; i++) {
+                if (lengths[i] > 0) {
+                    long low = (i == 0) ? 0 : 1L << i;
+                    out.append(String.format("%10s: %d (%.2f%%)%n", low + "-" + ((1L << (i + 1)) - 1), lengths[i], 100.0 * lengths[i] / games));
+                }
+            }
+            return out.toString();
+        }
+    }
+
+    /*************************************************************************/
+    /* Main Method */
+    /**
+     * This main method reads the settings from the arguments, runs the games and prints the report.
+     *
+     * @param args      [games] [boardSize] [winValue] [random|greedy|corner] [threads] [seed]
+     */
+    public static void main(String[] args){
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        int boardSize = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int winValue = (args.length > 2) ? Integer.parseInt(args[2]) : 2048;
+        String policy = (args.length > 3) ? args[3] : "random";
+        int threads = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 5) ? Long.parseLong(args[5]) : System.nanoTime();
+
+        Simulator simulator = new Simulator(games, boardSize, winValue, policy, seed);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        System.out.printf("Simulating %d games of %dx%d to %d with the %s policy on %d threads (seed %d)%n",
+                games, boardSize, boardSize, winValue, policy, threads, seed);
+        long start = System.nanoTime();
+        Stats stats = simulator.run(pool);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        System.out.print(stats.report(elapsed));
+    }
+}
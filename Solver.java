@@ -0,0 +1,334 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Solver picks moves for a packed 4x4 board with a depth-limited expectimax search:
+ * the best of the four moves, averaged over every 2 or 4 that can spawn in every
+ * empty cell. Leaves are scored with a heuristic that rewards empty cells, possible
+ * merges and monotonic rows/columns. Searches deepen one level at a time until the
+ * time budget runs out, the spawns below each root move are searched in parallel,
+ * and evaluated positions are cached in an off-heap TranspositionTable that is
+ * shared by the search threads and kept between moves. The heuristic scores every rotation and
+ * reflection of a board the same, so the table is keyed on BitBoard.canonical and
+ * symmetric positions share one entry.
+ */
+public class Solver {
+    /*************************************************************************/
+    /* Variables */
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final double PROB_TWO = 0.5; // GameController.newTile picks a 2 or a 4 with equal odds
+    private static final double MIN_PROBABILITY = 0.0001; // Branches less likely than this are scored without searching
+    private static final int MAX_DEPTH = 12;
+    private static final int CHECK_INTERVAL = 1023; // The clock is checked every 1024 nodes
+
+    // Heuristic weights for a single row (columns are scored as transposed rows)
+    private static final float LOST_PENALTY = 200000f;
+    private static final float MONOTONICITY_POWER = 4f;
+    private static final float MONOTONICITY_WEIGHT = 47f;
+    private static final float SUM_POWER = 3.5f;
+    private static final float SUM_WEIGHT = 11f;
+    private static final float MERGES_WEIGHT = 700f;
+    private static final float EMPTY_WEIGHT = 270f;
+    private static final float[] ROW_HEURISTIC = new float[1 << 16];
+
+    static {
+        for (int line = 0; line < ROW_HEURISTIC.length; line++) {
+            ROW_HEURISTIC[line] = rowHeuristic(line);
+        }
+    }
+
+    private ForkJoinPool pool;
+    private TranspositionTable table;
+    private volatile long deadline; // System.nanoTime() after which the current depth is abandoned
+    private volatile boolean timedOut;
+    // Figures from the last call to bestMove
+    private long nodes;
+    private long probes;
+    private long hits;
+    private long elapsedNanos;
+    private int depth;
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a solver that searches on the common fork/join pool with a table of 2^22 entries (64MB).
+     */
+    public Solver(){
+        this(ForkJoinPool.commonPool(), 22);
+    }
+
+    /**
+     * This creates a solver that searches on the given pool.
+     *
+     * @param pool          The pool the root moves are searched on
+     * @param tableBits     log2 of the number of transposition table entries (16 bytes each)
+     */
+    public Solver(ForkJoinPool pool, int tableBits){
+        this.pool = pool;
+        this.table = new TranspositionTable(tableBits);
+    }
+
+    /*************************************************************************/
+    /* Best Move Method */
+    /**
+     * This searches for the best move on a packed 4x4 board. At least one level is always
+     * searched in full; deeper levels are only used if they finish within the budget.
+     *
+     * @param board             The board to move on (it is not changed)
+     * @param timeBudgetMillis  Roughly how long the search may take
+     * @return Direction        The best move found, or null if no move changes the board
+     */
+    public Direction bestMove(Board board, long timeBudgetMillis){
+        if (!board.isPacked()) {
+            throw new IllegalArgumentException("The solver only works on packed 4x4 boards");
+        }
+        long cells = board.getPackedCells();
+        long start = System.nanoTime();
+        deadline = start + timeBudgetMillis * 1000000L;
+        table.newSearch();
+        nodes = 0;
+        probes = 0;
+        hits = 0;
+        depth = 0;
+        Direction best = null;
+        for (int searchDepth = 1; searchDepth <= MAX_DEPTH; searchDepth++) {
+            timedOut = false;
+            Direction found = searchRoot(cells, searchDepth, searchDepth > 1);
+            if (timedOut) {
+                break; // This depth did not finish, so keep the answer from the last one
+            }
+            best = found;
+            depth = searchDepth;
+            if (best == null || System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return best;
+    }
+
+    // Searches every spawn below every root move in parallel and returns the best move
+    private Direction searchRoot(long cells, int searchDepth, boolean timed){
+        List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+        int[] emptyCounts = new int[DIRECTIONS.length];
+        for (Direction direction : DIRECTIONS) {
+            long moved = BitBoard.move(cells, direction);
+            if (moved == cells) {
+                continue; // Moves that change nothing are not allowed
+            }
+            int empty = BitBoard.countEmpty(moved);
+            emptyCounts[direction.ordinal()] = empty;
+            for (int n = 0; n < empty; n++) {
+                for (int exponent = 1; exponent <= 2; exponent++) {
+                    long spawned = BitBoard.spawn(moved, n, exponent);
+                    double probability = ((exponent == 1) ? PROB_TWO : 1 - PROB_TWO) / empty;
+                    int index = direction.ordinal();
+                    tasks.add(() -> {
+                        Search search = new Search(timed);
+                        double value = probability * search.maxNode(spawned, searchDepth - 1, probability);
+                        return new double[] {index, value, search.nodes, search.probes, search.hits};
+                    });
+                }
+            }
+        }
+        if (tasks.isEmpty()) {
+            return null;
+        }
+        double[] totals = new double[DIRECTIONS.length];
+        try {
+            for (Future<double[]> future : pool.invokeAll(tasks)) {
+                double[] result = future.get();
+                totals[(int) result[0]] += result[1];
+                nodes += (long) result[2];
+                probes += (long) result[3];
+                hits += (long) result[4];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timedOut = true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        Direction best = null;
+        for (Direction direction : DIRECTIONS) {
+            int index = direction.ordinal();
+            if (emptyCounts[index] > 0 && (best == null || totals[index] > totals[best.ordinal()])) {
+                best = direction;
+            }
+        }
+        return best;
+    }
+
+    /*************************************************************************/
+    /* Search Class */
+    // The state of one search thread. Counters are kept per thread and added up at the end.
+    private class Search {
+        private boolean timed; // False for depth 1, which always runs to the end
+        private long nodes;
+        private long probes;
+        private long hits;
+
+        Search(boolean timed){
+            this.timed = timed;
+        }
+
+        // Best value over the four moves of a board a tile was just added to
+        double maxNode(long cells, int depthLeft, double probability){
+            nodes++;
+            double best = 0; // A board with no moves is lost and worth nothing
+            for (Direction direction : DIRECTIONS) {
+                long moved = BitBoard.move(cells, direction);
+                if (moved != cells) {
+                    best = Math.max(best, chanceNode(moved, depthLeft, probability));
+                }
+            }
+            return best;
+        }
+
+        // Average value over every tile that can spawn on a board that was just moved
+        double chanceNode(long cells, int depthLeft, double probability){
+            nodes++;
+            if (depthLeft <= 0 || probability < MIN_PROBABILITY) {
+                return evaluate(cells);
+            }
+            if (timed && (nodes & CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+            }
+            if (timedOut) {
+                return 0; // The result is thrown away, so just unwind
+            }
+            probes++;
+            long key = BitBoard.canonical(cells);
+            long entry = table.probe(key);
+            if (entry != 0 && TranspositionTable.depth(entry) >= depthLeft) {
+                hits++;
+                return TranspositionTable.value(entry);
+            }
+            int empty = BitBoard.countEmpty(cells);
+            double total = 0;
+            for (int n = 0; n < empty; n++) {
+                double two = PROB_TWO / empty;
+                double four = (1 - PROB_TWO) / empty;
+                total += two * maxNode(BitBoard.spawn(cells, n, 1), depthLeft - 1, probability * two);
+                total += four * maxNode(BitBoard.spawn(cells, n, 2), depthLeft - 1, probability * four);
+            }
+            if (!timedOut) {
+                table.store(key, (float) total, depthLeft, null); // Chance nodes have no move of their own
+            }
+            return total;
+        }
+    }
+
+    /*************************************************************************/
+    /* Heuristic Methods */
+    /**
+     * This scores a packed board with the heuristic used at the leaves of the search.
+     *
+     * @param cells     The packed board
+     * @return double   Higher is better
+     */
+    public static double evaluate(long cells){
+        long columns = BitBoard.transpose(cells);
+        double total = 0;
+        for (int i = 0; i < BitBoard.SIZE; i++) {
+            total += ROW_HEURISTIC[(int) (cells >>> (16 * i)) & 0xFFFF];
+            total += ROW_HEURISTIC[(int) (columns >>> (16 * i)) & 0xFFFF];
+        }
+        return total;
+    }
+
+    // Scores one row: empty cells and merges are good, big tiles out of order are bad
+    private static float rowHeuristic(int line){
+        int[] tiles = new int[BitBoard.SIZE];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = (line >>> (4 * i)) & 0xF;
+        }
+        float sum = 0;
+        int empty = 0;
+        int merges = 0;
+        int previous = 0;
+        int run = 0;
+        for (int tile : tiles) {
+            sum += (float) Math.pow(tile, SUM_POWER);
+            if (tile == 0) {
+                empty++;
+            } else {
+                if (tile == previous) {
+                    run++;
+                } else if (run > 0) {
+                    merges += 1 + run;
+                    run = 0;
+                }
+                previous = tile;
+            }
+        }
+        if (run > 0) {
+            merges += 1 + run;
+        }
+        float monotonicLeft = 0;
+        float monotonicRight = 0;
+        for (int i = 1; i < tiles.length; i++) {
+            float before = (float) Math.pow(tiles[i - 1], MONOTONICITY_POWER);
+            float after = (float) Math.pow(tiles[i], MONOTONICITY_POWER);
+            if (tiles[i - 1] > tiles[i]) {
+                monotonicLeft += before - after;
+            } else {
+                monotonicRight += after - before;
+            }
+        }
+        return LOST_PENALTY + EMPTY_WEIGHT * empty + MERGES_WEIGHT * merges
+                - MONOTONICITY_WEIGHT * Math.min(monotonicLeft, monotonicRight) - SUM_WEIGHT * sum;
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns the depth of the last search that finished within the budget.
+     *
+     * @return int      The search depth in moves
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * This returns the number of positions visited by the last call to bestMove.
+     *
+     * @return long     The number of nodes searched
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * This returns how fast the last call to bestMove searched.
+     *
+     * @return double   Nodes searched per second
+     */
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * This returns the share of transposition table lookups that found a usable entry
+     * during the last call to bestMove.
+     *
+     * @return double   The hit rate between 0 and 1
+     */
+    public double getCacheHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * This returns the transposition table, whose counters cover every search so far.
+     *
+     * @return TranspositionTable   The table shared by the search threads
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
@@ -1,5 +1,8 @@
+import java.util.ArrayList;
+import java.util.List;
+
 public class Stack<E> {
-    private LinkedList<E> stack = new LinkedList<E>();
+    private List<E> stack = new ArrayList<E>();
 
     public Stack(){
     }
@@ -9,11 +12,11 @@ public class Stack<E> {
     }
 
     public E peek(){
-        return stack.getLast();
+        return stack.get(stack.size() - 1);
     }
 
     public E pop(){
-        return stack.removeLast();
+        return stack.remove(stack.size() - 1);
     }
 
     public int size(){
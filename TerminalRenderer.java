@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * TerminalRenderer draws the board for Text2048. Every frame is built in one
+ * StringBuilder and written with a single print. On terminals that understand ANSI
+ * escape codes the board is drawn once and later frames only move the cursor to the
+ * cells that changed and rewrite those, so the screen does not scroll. Anywhere else
+ * (a pipe, a file, a dumb terminal) the board is printed the way Text2048 always has.
+ *
+ * It can also put the terminal in raw mode with stty, so single keys (WASD or the
+ * arrow keys) are read as soon as they are pressed instead of after Enter.
+ */
+public class TerminalRenderer {
+    /*************************************************************************/
+    /* Variables */
+    private static final String CSI = "\u001B["; // Starts every ANSI escape code
+    private static final int MIN_CELL_WIDTH = 4;
+    private PrintStream out;
+    private boolean ansi;
+    private StringBuilder frame = new StringBuilder(4096); // Reused for every frame
+    private StringBuilder message = new StringBuilder(); // Lines shown under the board on the next ANSI frame
+    private int[] drawn; // Exponent of each cell on screen, -1 if it needs drawing
+    private int drawnSize; // Size of the board on screen, 0 before the first ANSI frame
+    private int cellWidth;
+    private String savedSettings; // stty settings to restore, null while raw mode is off
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates a renderer.
+     *
+     * @param out       Where frames are written
+     * @param ansi      True to redraw in place with ANSI escape codes
+     */
+    public TerminalRenderer(PrintStream out, boolean ansi){
+        this.out = out;
+        this.ansi = ansi;
+    }
+
+    /**
+     * This checks if standard output is an interactive terminal that understands ANSI
+     * escape codes: there is a console, TERM is set and is not "dumb", and this is not Windows.
+     *
+     * @return boolean  True if ANSI redraws can be used
+     */
+    public static boolean isAnsiTerminal(){
+        String term = System.getenv("TERM");
+        return System.console() != null && term != null && !term.equals("dumb")
+                && !System.getProperty("os.name", "").startsWith("Windows");
+    }
+
+    /*************************************************************************/
+    /* Render Methods */
+    /**
+     * This draws the board. In ANSI mode only cells that changed since the last frame are
+     * rewritten, followed by the score and any messages added since then.
+     *
+     * @param board     The board to draw
+     * @param score     The score to show under the board (ANSI mode only)
+     */
+    public void render(Board board, int score){
+        frame.setLength(0);
+        if (ansi) {
+            appendAnsiFrame(board, score);
+        } else {
+            appendPlainFrame(board);
+        }
+        out.append(frame);
+        out.flush();
+    }
+
+    // Same layout Text2048 has always printed: "value / " per cell, a blank line after each row
+    private void appendPlainFrame(Board board){
+        int size = board.getBoardSize();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int exponent = board.getExponent(row, col);
+                frame.append(exponent == 0 ? 0 : 1L << exponent).append(" / ");
+            }
+            frame.append("\n\n");
+        }
+    }
+
+    // Rewrites the cells that changed, then the lines under the board
+    private void appendAnsiFrame(Board board, int score){
+        int size = board.getBoardSize();
+        int width = Math.max(MIN_CELL_WIDTH, digits(board.getMaxExponent()) + 1);
+        if (size != drawnSize || width > cellWidth) {
+            // First frame, or the board no longer fits the columns: clear the screen and draw it all
+            drawnSize = size;
+            cellWidth = width;
+            drawn = new int[size * size];
+            Arrays.fill(drawn, -1);
+            frame.append(CSI).append("H").append(CSI).append("2J");
+        }
+        for (int cell = 0; cell < size * size; cell++) {
+            int exponent = board.getCell(cell);
+            if (drawn[cell] == exponent) {
+                continue;
+            }
+            drawn[cell] = exponent;
+            // Rows and columns on the screen count from 1
+            frame.append(CSI).append(cell / size + 1).append(';').append((cell % size) * cellWidth + 1).append('H');
+            int padding = cellWidth - ((exponent == 0) ? 1 : digits(exponent));
+            for (int i = 0; i < padding; i++) {
+                frame.append(' ');
+            }
+            if (exponent == 0) {
+                frame.append('.');
+            } else {
+                frame.append(1L << exponent);
+            }
+        }
+        // Clear everything under the board and write the score and messages there
+        frame.append(CSI).append(size + 2).append(";1H").append(CSI).append('J');
+        frame.append("Score: ").append(score).append('\n');
+        frame.append(message);
+        message.setLength(0);
+    }
+
+    // Number of decimal digits in 2^exponent
+    private static int digits(int exponent){
+        return (exponent == 0) ? 1 : (int) Math.floor(exponent * Math.log10(2)) + 1;
+    }
+
+    /**
+     * This shows a line of text. In ANSI mode it is kept and shown under the board on the
+     * next frame (the frame clears the area under the board); otherwise it is printed now.
+     *
+     * @param line      The text to show
+     */
+    public void message(String line){
+        if (ansi) {
+            message.append(line).append('\n');
+        } else {
+            out.println(line);
+        }
+    }
+
+    /**
+     * This makes the next frame clear the screen and draw every cell, for example after
+     * something else was printed over the board.
+     */
+    public void invalidate(){
+        drawnSize = 0;
+    }
+
+    /**
+     * This checks if frames are drawn in place with ANSI escape codes.
+     *
+     * @return boolean  True in ANSI mode
+     */
+    public boolean isAnsi(){
+        return ansi;
+    }
+
+    /*************************************************************************/
+    /* Raw Mode Methods */
+    /**
+     * This switches the terminal to raw mode so keys are read without waiting for Enter
+     * and are not echoed. The old settings come back when the program exits or when
+     * restoreTerminal is called.
+     *
+     * @return boolean  True if raw mode is on; false if stty is not available
+     */
+    public boolean enableRawMode(){
+        if (savedSettings != null) {
+            return true;
+        }
+        String settings = stty("-g");
+        if (settings == null || stty("-icanon -echo min 1") == null) {
+            return false;
+        }
+        savedSettings = settings;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::restoreTerminal));
+        return true;
+    }
+
+    /**
+     * This puts the terminal settings back the way they were before enableRawMode.
+     */
+    public synchronized void restoreTerminal(){
+        if (savedSettings != null) {
+            stty(savedSettings);
+            savedSettings = null;
+        }
+    }
+
+    /**
+     * This checks if the terminal is in raw mode.
+     *
+     * @return boolean  True if single keys can be read with readKey
+     */
+    public boolean isRaw(){
+        return savedSettings != null;
+    }
+
+    /**
+     * This reads one key in raw mode. The arrow keys come back as w, a, s and d.
+     *
+     * @param in            The input to read (System.in)
+     * @return int          The key, lower case for letters, or -1 at the end of the input
+     * @throws IOException  If the input cannot be read
+     */
+    public int readKey(InputStream in) throws IOException {
+        int key = in.read();
+        if (key == 0x1B) {
+            // Arrow keys send ESC [ A through ESC [ D all at once; a lone ESC has nothing after
+            // it yet, so only read on when more bytes are already waiting
+            if (in.available() == 0 || in.read() != '[' || in.available() == 0) {
+                return key;
+            }
+            switch (in.read()) {
+                case 'A':
+                    return 'w';
+                case 'B':
+                    return 's';
+                case 'C':
+                    return 'd';
+                case 'D':
+                    return 'a';
+                default:
+                    return key;
+            }
+        }
+        return (key < 0) ? key : Character.toLowerCase(key);
+    }
+
+    // Runs stty on the controlling terminal and returns what it printed, or null if it failed
+    private static String stty(String arguments){
+        try {
+            Process process = new ProcessBuilder("sh", "-c", "stty " + arguments + " < /dev/tty")
+                    .redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+            return (process.waitFor() == 0) ? output : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -1,8 +1,18 @@
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.Scanner;
 
 /**
  * Text2048 is the command line interface that houses the model part of the 2048 game.
  *
+ * Given arguments it runs in batch mode instead, playing a stream of moves without
+ * printing anything until the end (see runBatch):
+ *
+ * Usage: java Text2048 [boardSize winValue seed [moveFile|-] [summaryEvery]]
+ *
  *  @authors Bobby Caron, Matteo Ciavaglia, Charles Greco, Breanna Zinky
  *  @date 11/2/22
  *  @version 1.0
@@ -12,25 +22,26 @@ public class Text2048 {
     /* Variables */
     private GameController game = new GameController(); // Instance of GameController to control the game logic/perform actions on the board
     private Scanner scanner = new Scanner(System.in); // For getting user input
+    private TerminalRenderer renderer = new TerminalRenderer(System.out, TerminalRenderer.isAnsiTerminal()); // Draws the board
+    private Solver solver; // Created the first time a hint or auto play is asked for
+    private NTupleNetwork network; // Trained evaluator, loaded the first time N is used
+    private static final long SOLVER_MILLIS = 100; // Time the solver gets to pick each move
+    private static final int UNDO_LIMIT = 1000; // Moves that can be taken back
 
     /*************************************************************************/
     /* printBoard Method */
 
     /**
-     * This prints the current board (from the values in the linked list) into the command line interface.
+     * This prints the current board into the command line interface. The whole board is
+     * written at once, and on ANSI terminals only the cells that changed are redrawn.
      */
     public void printBoard(){
-        // Cycle through the rows and columns
-        for (int row = 0; row < game.getBoard().getBoardSize(); row++) {
-            for (int col = 0; col < game.getBoard().getBoardSize(); col++) {
-                if(game.getBoard().getValue(row,col) == -1) { // If the tile is empty
-                    System.out.print("0 / ");
-                }else{
-                    System.out.print(game.getBoard().getValue(row,col) + " / "); // If the tile has a value
-                }
-            }
-            System.out.println("\n");
-        }
+        renderer.render(game.getBoard(), game.getScore());
+    }
+
+    // Shows a message; on ANSI terminals it appears under the board with the next frame
+    private void message(String line){
+        renderer.message(line);
     }
 
     /*************************************************************************/
@@ -80,54 +91,80 @@ public class Text2048 {
         }
 
         game = new GameController(boardSize,winValue); // Instance of GameController passing it the obtained user input
+        game.setUndoLimit(UNDO_LIMIT);
+        // Read single keys without Enter if the terminal allows it
+        boolean raw = renderer.isAnsi() && renderer.enableRawMode();
 
         // Letting the user input moves and running those moves
         while (game.getGameStatus() == GameStatus.IN_PROGRESS) {
             printBoard(); // Update/display the current board
-            System.out.println("Move in which direction? (WASD): ");
-            String direction = scanner.nextLine();
+            System.out.println("Move in which direction? (WASD" + (raw ? " or arrows" : "")
+                    + ", U to undo, R to redo, H for a hint, P to let the solver play, N for the network's move, Q to quit): ");
+            String direction = raw ? readKey() : scanner.nextLine();
+            MoveResult result;
             switch (direction) {
                 case "W":
-                    game.recurseUp(1);
-                    break;
                 case "w":
-                    game.recurseUp(1);
+                    result = game.move(Direction.UP);
                     break;
                 case "S":
-                    game.recurseDown(boardSize -2);
-                    break;
                 case "s":
-                    game.recurseDown(boardSize -2);
+                    result = game.move(Direction.DOWN);
                     break;
                 case "A":
-                    game.recurseLeft(1);
-                    break;
                 case "a":
-                    game.recurseLeft(1);
+                    result = game.move(Direction.LEFT);
                     break;
                 case "D":
-                    game.recurseRight(boardSize - 2);
-                    break;
                 case "d":
-                    game.recurseRight(boardSize - 2);
+                    result = game.move(Direction.RIGHT);
                     break;
-                case "Q":
-                    System.out.println("Thank you for playing!\n\n");
-                    System.exit(0);
+                case "U":
+                case "u":
+                    if (!game.undo()) {
+                        message("There is nothing to undo.");
+                    }
+                    continue;
+                case "R":
+                case "r":
+                    if (!game.redo()) {
+                        message("There is nothing to redo.");
+                    }
+                    continue;
+                case "H":
+                case "h":
+                    hint();
+                    continue;
+                case "P":
+                case "p":
+                    autoPlay();
+                    continue;
+                case "N":
+                case "n":
+                    Direction best = networkMove();
+                    if (best == null) {
+                        continue;
+                    }
+                    message("Network moved " + best);
+                    result = game.move(best);
                     break;
+                case "Q":
                 case "q":
+                    renderer.restoreTerminal();
                     System.out.println("Thank you for playing!\n\n");
                     System.exit(0);
-                    break;
+                    return;
                 default:
-                    System.out.println("That is not a valid command.");
+                    message("That is not a valid command.");
                     continue;
             }
-            if (game.getBoard().hasEmpty()) {
+            // Only spawn a tile if the move actually changed the board
+            if (result.isMoved() && game.getBoard().hasEmpty()) {
                 game.newTile();
             }
         }
         printBoard(); // Update/display the current board
+        renderer.restoreTerminal();
         // Repeat running through moves until a win or loss is detected
         if(game.getGameStatus() == GameStatus.WON){
             System.out.println("CONGRATULATIONS!\n\n");
@@ -135,15 +172,214 @@ public class Text2048 {
             System.out.println("Better luck next time.\n\n");
         }
     }
+    // Reads one key in raw mode and turns it into a command
+    private String readKey(){
+        try {
+            int key = renderer.readKey(System.in);
+            return (key < 0) ? "q" : String.valueOf((char) key); // The end of the input quits
+        } catch (IOException ex) {
+            return "q";
+        }
+    }
+
+    /*************************************************************************/
+    /* Solver Methods */
+
+    /**
+     * This asks the solver for the best move and prints it along with how the search went.
+     */
+    public void hint(){
+        if (!game.getBoard().isPacked()) {
+            message("The solver only works on 4x4 boards.");
+            return;
+        }
+        Direction best = getSolver().bestMove(game.getBoard(), SOLVER_MILLIS);
+        message("Suggested move: " + best);
+        printSolverStats();
+    }
+
+    /**
+     * This lets the solver play the rest of the game, printing the board after every move.
+     */
+    public void autoPlay(){
+        if (!game.getBoard().isPacked()) {
+            message("The solver only works on 4x4 boards.");
+            return;
+        }
+        while (game.getGameStatus() == GameStatus.IN_PROGRESS) {
+            Direction best = getSolver().bestMove(game.getBoard(), SOLVER_MILLIS);
+            if (best == null) {
+                break;
+            }
+            if (game.move(best).isMoved()) {
+                game.newTile();
+            }
+            message("Solver moved " + best);
+            printSolverStats();
+            printBoard();
+        }
+    }
+
+    /**
+     * This asks the trained n-tuple network for the next move, loading it from
+     * NTupleNetwork.getWeightsPath() the first time.
+     *
+     * @return Direction    The network's move, or null if there is none or the network is not available
+     */
+    public Direction networkMove(){
+        if (!game.getBoard().isPacked()) {
+            message("The n-tuple network only plays 4x4 boards.");
+            return null;
+        }
+        if (network == null) {
+            try {
+                network = NTupleNetwork.load(NTupleNetwork.getWeightsPath());
+            } catch (IOException ex) {
+                message("Could not load " + NTupleNetwork.getWeightsPath() + ". Run NTupleTrainer first.");
+                return null;
+            }
+        }
+        return network.bestMove(game.getBoard().getPackedCells());
+    }
+
+    // Prints how far and how fast the last search went
+    private void printSolverStats(){
+        message(String.format("Depth %d, %d nodes, %.0f nodes/sec, cache hit rate %.1f%%",
+                solver.getDepth(), solver.getNodes(), solver.getNodesPerSecond(), 100 * solver.getCacheHitRate()));
+    }
+
+    // Creates the solver the first time it is needed
+    private Solver getSolver(){
+        if (solver == null) {
+            solver = new Solver();
+        }
+        return solver;
+    }
+
+    /*************************************************************************/
+    /* Batch Method */
+    /**
+     * This plays a stream of moves on a seeded game as fast as the engine allows. Moves are
+     * the letters W, A, S and D (either case), plus U and R for undo and redo; whitespace is
+     * skipped and anything else is counted as invalid. A tile is added after every move that
+     * changes the board, as in the interactive game, and the moves stop counting once the
+     * game is won or lost. Only the final board and status are printed, plus a one line
+     * summary every summaryEvery moves if that is more than 0.
+     *
+     * @param boardSize     An integer between 4 and 10 for the size of the square board
+     * @param winValue      The number to reach in order to win the game - some power of 2.
+     * @param seed          The seed for placing new tiles, so the same moves give the same game
+     * @param moves         The moves to play (read in large blocks, not line by line)
+     * @param out           Where the summaries and the result are printed
+     * @param summaryEvery  How many commands between summary lines, or 0 for none
+     * @return GameStatus   The status of the game after the last move
+     * @throws IOException  If the moves cannot be read
+     */
+    public static GameStatus runBatch(int boardSize, int winValue, long seed, InputStream moves,
+                                      PrintStream out, long summaryEvery) throws IOException {
+        new Tile(winValue); // Check that the number is a power of two - will throw an exception if not
+        GameController game = new GameController(boardSize, winValue, seed);
+        game.setUndoLimit(UNDO_LIMIT);
+        byte[] buffer = new byte[1 << 16];
+        long played = 0; // Commands applied to the game
+        long moved = 0; // Moves that changed the board
+        long undone = 0; // Undos and redos that changed the board
+        long ignored = 0; // Commands after the game ended
+        long invalid = 0;
+        long start = System.nanoTime();
+        GameStatus status = game.getGameStatus();
+        int read;
+        while ((read = moves.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                Direction direction;
+                switch (buffer[i]) {
+                    case 'W':
+                    case 'w':
+                        direction = Direction.UP;
+                        break;
+                    case 'S':
+                    case 's':
+                        direction = Direction.DOWN;
+                        break;
+                    case 'A':
+                    case 'a':
+                        direction = Direction.LEFT;
+                        break;
+                    case 'D':
+                    case 'd':
+                        direction = Direction.RIGHT;
+                        break;
+                    case 'U':
+                    case 'u':
+                    case 'R':
+                    case 'r':
+                        direction = null;
+                        break;
+                    case ' ':
+                    case '\t':
+                    case '\r':
+                    case '\n':
+                        continue;
+                    default:
+                        invalid++;
+                        continue;
+                }
+                if (status != GameStatus.IN_PROGRESS) {
+                    ignored++;
+                    continue;
+                }
+                if (direction == null) {
+                    boolean changed = (buffer[i] == 'U' || buffer[i] == 'u') ? game.undo() : game.redo();
+                    if (changed) {
+                        undone++;
+                    }
+                } else if (game.move(direction).isMoved()) {
+                    game.newTile();
+                    moved++;
+                }
+                status = game.getGameStatus();
+                played++;
+                if (summaryEvery > 0 && played % summaryEvery == 0) {
+                    out.printf("%d commands, %d moves, score %d, largest tile %d, %s%n", played, moved, game.getScore(),
+                            1L << game.getBoard().getMaxExponent(), status);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        new TerminalRenderer(out, false).render(game.getBoard(), game.getScore());
+        out.printf("%s with score %d after %d moves and %d undos/redos (%d commands, %d ignored after the end, %d invalid)"
+                        + " in %.3f s, %.0f commands/sec%n", status, game.getScore(), moved, undone, played, ignored, invalid,
+                seconds, played / Math.max(seconds, 1e-9));
+        out.flush();
+        return status;
+    }
+
     /*************************************************************************/
     /* Main Method */
     /**
-     * This main method creates an instance of the Text2048 object and runs it.
+     * This main method creates an instance of the Text2048 object and runs it, or runs
+     * batch mode if there are arguments.
      *
-     * @param args      Arguments for main method
+     * @param args      [boardSize winValue seed [moveFile|-] [summaryEvery]] for batch mode
      */
-    public static void main(String[] args){
-        Text2048 game = new Text2048();
-        game.run();
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            Text2048 game = new Text2048();
+            game.run();
+            return;
+        }
+        if (args.length < 3) {
+            System.out.println("Usage: java Text2048 [boardSize winValue seed [moveFile|-] [summaryEvery]]");
+            System.exit(2);
+        }
+        int boardSize = Integer.parseInt(args[0]);
+        int winValue = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        String file = (args.length > 3) ? args[3] : "-";
+        long summaryEvery = (args.length > 4) ? Long.parseLong(args[4]) : 0;
+        InputStream moves = file.equals("-") ? System.in : new FileInputStream(file);
+        try (InputStream in = new BufferedInputStream(moves, 1 << 16)) {
+            runBatch(boardSize, winValue, seed, in, System.out, summaryEvery);
+        }
     }
 }
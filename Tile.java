@@ -1,5 +1,9 @@
 /**
- * ...
+ * Tile holds the value of one tile of the board, which is always a power of 2. The value
+ * is kept as its exponent (1 for 2, 2 for 4, ...), so checking a value takes a couple of
+ * bit operations and a merge is just exponent + 1. Tile.of returns one shared tile per
+ * exponent, so handing out tiles allocates nothing. A tile never changes once made, so
+ * sharing one is always safe; to change a cell, set it on the Board.
  *
  *  @authors Bobby Caron, Matteo Ciavaglia, Charles Greco, Breanna Zinky
  *  @date 11/2/22
@@ -12,12 +16,22 @@
 public class Tile {
 /************************************************************/
 /* Variables */
-private double value;
+private static final int MAX_SHARED_EXPONENT = Byte.MAX_VALUE; // The largest exponent a board cell can hold
+private static final Tile[] SHARED = new Tile[MAX_SHARED_EXPONENT + 1]; // Index 0 is unused
+private final int exponent; // log2 of the value
+
+    static
+    {
+        for (int i = 1; i <= MAX_SHARED_EXPONENT; i++)
+        {
+            SHARED[i] = new Tile(Math.scalb(1.0, i));
+        }
+    }
     /************************************************************/
     /* Constructors */
     public Tile() // Default constructor
     {
-    this.value = 2;
+    this.exponent = 1;
     }
 
     public Tile(double value)
@@ -25,41 +39,49 @@ private double value;
         // Check that value is a power of 2
         if (power2(value))
         {
-            this.value = value;
+            this.exponent = Math.getExponent(value);
         }
         else throw new IllegalArgumentException();  // Throw exception if value is not a power of 2
     }
-/************************************************************/
-    /* Getters and Setters */
-    public void setValue(double value)
+
+    /**
+     * This returns the shared tile for an exponent. It is the same object every time.
+     *
+     * @param exponent  log2 of the value, between 1 and 127
+     * @return Tile     The shared tile
+     */
+    public static Tile of(int exponent)
     {
-        // Check that value is a power of 2
-        if (power2(value))
+        if (exponent < 1 || exponent > MAX_SHARED_EXPONENT)
         {
-            this.value = value;
+            throw new IllegalArgumentException();
         }
-        else throw new IllegalArgumentException();  // Throw exception if value is not a power of 2
+        return SHARED[exponent];
     }
-
+/************************************************************/
+    /* Getters and Setters */
     public double getValue()
     {
-        return value;
+        return Math.scalb(1.0, exponent);
+    }
+
+    /**
+     * This returns the exponent of the value.
+     *
+     * @return int      log2 of the value (1 for 2, 2 for 4, ...)
+     */
+    public int getExponent()
+    {
+        return exponent;
     }
 /************************************************************/
     /* Power2 Method */
 public boolean power2(double value)
     {
-        // This method will be recursive. It will recursively divide the value by 2 to determine if
-        // It is a valid power of 2.
-        if (value < 2) // Base case
-        {
-            return false;
-        }
-        if (value == 2.0)
-        {
-            return true;
-        }
-        return power2(value / 2.0);
+        // A double is a power of 2 when its mantissa bits are all 0; 1 (2^0) does not count as a tile.
+        // Infinity has an empty mantissa too, so it is ruled out by its exponent.
+        return value >= 2 && value <= Double.MAX_VALUE
+                && (Double.doubleToRawLongBits(value) & 0x000FFFFFFFFFFFFFL) == 0;
     }
 /************************************************************/
     /* ToString Method */
@@ -0,0 +1,270 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TranspositionTable is a fixed-size cache of search results for boards, kept outside
+ * the Java heap in direct ByteBuffers so it can hold hundreds of millions of entries
+ * without adding to garbage collection work. Every entry is 16 bytes: the board key
+ * XORed with the data, then the data itself, which packs the value, search depth, best
+ * move and the search it was written in. Entries are grouped in buckets of 4 that fill
+ * one 64 byte cache line. Threads probe and store without locks; an entry torn by two
+ * threads writing at once no longer XORs back to its key, so it reads as a miss.
+ *
+ * Direct memory is limited by -XX:MaxDirectMemorySize, so big tables may need it raised.
+ */
+public class TranspositionTable {
+    /*************************************************************************/
+    /* Variables */
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+    private static final int CHUNK_BITS = 30; // A ByteBuffer holds at most 2GB, so memory is split into 1GB chunks
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    // Layout of the data word. The valid bit keeps a stored entry from ever being 0,
+    // so probe can use 0 for a miss.
+    private static final long VALID = 1L << 63;
+    private static final int DEPTH_SHIFT = 32; // Bits 0-31 hold the float bits of the value
+    private static final int MOVE_SHIFT = 40; // 0 for no move, else the Direction ordinal + 1
+    private static final int AGE_SHIFT = 48;
+    private static final int MAX_DEPTH = 0xFF;
+    private static final int AGE_WEIGHT = 4; // Each search an entry is older counts as 4 plies less depth when replacing
+
+    private ByteBuffer[] chunks;
+    private long bucketCount;
+    private int bucketShift; // Shift that takes the top bits of a mixed key as the bucket number
+    private volatile int age; // Number of the current search, wrapping at 256
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder stores = new LongAdder();
+    private LongAdder collisions = new LongAdder();
+
+    /*************************************************************************/
+    /* Constructors */
+    /**
+     * This creates an empty table with 2^entryBits entries (16 bytes each).
+     *
+     * @param entryBits     log2 of the number of entries, between 2 and 32
+     */
+    public TranspositionTable(int entryBits){
+        if (entryBits < 2 || entryBits > 32) {
+            throw new IllegalArgumentException();
+        }
+        int bucketBits = entryBits - 2;
+        bucketCount = 1L << bucketBits;
+        bucketShift = 64 - bucketBits;
+        long bytes = bucketCount * BUCKET_BYTES;
+        int chunkCount = (int) ((bytes + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS);
+        chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long size = Math.min(bytes - ((long) i << CHUNK_BITS), 1L << CHUNK_BITS);
+            chunks[i] = ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /*************************************************************************/
+    /* Probe and Store Methods */
+    /**
+     * This looks up a board. The entry that comes back is read with value, depth and move.
+     *
+     * @param key       The 64 bit key of the board (for example Board.getCanonicalKey)
+     * @return long     The stored entry, or 0 if the board is not in the table
+     */
+    public long probe(long key){
+        long bucket = bucket(key);
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_BITS)];
+        int offset = (int) (bucket & ((1L << CHUNK_BITS) - 1));
+        for (int i = 0; i < BUCKET_ENTRIES; i++, offset += ENTRY_BYTES) {
+            long check = (long) LONGS.getOpaque(chunk, offset);
+            long data = (long) LONGS.getOpaque(chunk, offset + 8);
+            if ((data & VALID) != 0 && (check ^ data) == key) {
+                hits.increment();
+                return data;
+            }
+        }
+        misses.increment();
+        return 0;
+    }
+
+    /**
+     * This stores a search result for a board. An entry for the same board is only
+     * replaced by a search at least as deep, or by any search once it is from an older
+     * one; otherwise the shallowest and oldest entry of the bucket makes room.
+     *
+     * @param key       The 64 bit key of the board
+     * @param value     The value the search found
+     * @param depth     How many plies deep the search went (capped at 255)
+     * @param move      The best move found, or null if there is none
+     */
+    public void store(long key, float value, int depth, Direction move){
+        if (depth < 0) {
+            throw new IllegalArgumentException();
+        }
+        int currentAge = age;
+        long data = VALID | ((long) currentAge << AGE_SHIFT)
+                | ((long) ((move == null) ? 0 : move.ordinal() + 1) << MOVE_SHIFT)
+                | ((long) Math.min(depth, MAX_DEPTH) << DEPTH_SHIFT)
+                | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+        long bucket = bucket(key);
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_BITS)];
+        int start = (int) (bucket & ((1L << CHUNK_BITS) - 1));
+        int victim = start;
+        int victimScore = Integer.MAX_VALUE;
+        boolean victimUsed = true;
+        for (int i = 0, offset = start; i < BUCKET_ENTRIES; i++, offset += ENTRY_BYTES) {
+            long oldData = (long) LONGS.getOpaque(chunk, offset + 8);
+            if ((oldData & VALID) == 0) {
+                if (victimUsed) {
+                    // An empty entry beats any entry in use
+                    victim = offset;
+                    victimScore = Integer.MIN_VALUE;
+                    victimUsed = false;
+                }
+                continue;
+            }
+            long oldCheck = (long) LONGS.getOpaque(chunk, offset);
+            if ((oldCheck ^ oldData) == key) {
+                if (depth(oldData) > depth && age(oldData) == currentAge) {
+                    return; // Keep the deeper result from this search
+                }
+                write(chunk, offset, key, data);
+                return;
+            }
+            int score = depth(oldData) - AGE_WEIGHT * ((currentAge - age(oldData)) & 0xFF);
+            if (score < victimScore) {
+                victim = offset;
+                victimScore = score;
+            }
+        }
+        if (victimUsed) {
+            collisions.increment();
+        }
+        write(chunk, victim, key, data);
+    }
+
+    // Writes one entry, key check first
+    private void write(ByteBuffer chunk, int offset, long key, long data){
+        LONGS.setOpaque(chunk, offset, key ^ data);
+        LONGS.setOpaque(chunk, offset + 8, data);
+        stores.increment();
+    }
+
+    // Mixes the key and returns the byte offset of its bucket across all chunks
+    private long bucket(long key){
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 29;
+        return (bucketShift == 64 ? 0 : (hash >>> bucketShift)) * BUCKET_BYTES;
+    }
+
+    /**
+     * This starts a new search, so entries from earlier searches are replaced first.
+     * Entries are kept, since they are still right for the boards they describe.
+     */
+    public void newSearch(){
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * This empties the table and resets the counters.
+     */
+    public void clear(){
+        for (ByteBuffer chunk : chunks) {
+            for (int offset = 0; offset < chunk.capacity(); offset += 8) {
+                LONGS.setOpaque(chunk, offset, 0L);
+            }
+        }
+        hits.reset();
+        misses.reset();
+        stores.reset();
+        collisions.reset();
+    }
+
+    /*************************************************************************/
+    /* Entry Methods */
+    /**
+     * This returns the value stored in an entry from probe.
+     *
+     * @param entry     An entry returned by probe
+     * @return float    The stored value
+     */
+    public static float value(long entry){
+        return Float.intBitsToFloat((int) entry);
+    }
+
+    /**
+     * This returns the search depth stored in an entry from probe.
+     *
+     * @param entry     An entry returned by probe
+     * @return int      The stored depth
+     */
+    public static int depth(long entry){
+        return (int) (entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    /**
+     * This returns the best move stored in an entry from probe.
+     *
+     * @param entry         An entry returned by probe
+     * @return Direction    The stored move, or null if none was stored
+     */
+    public static Direction move(long entry){
+        int move = (int) (entry >>> MOVE_SHIFT) & 0x7;
+        return (move == 0) ? null : DIRECTIONS[move - 1];
+    }
+
+    // Search number an entry was written in
+    private static int age(long entry){
+        return (int) (entry >>> AGE_SHIFT) & 0xFF;
+    }
+
+    /*************************************************************************/
+    /* Getters */
+    /**
+     * This returns how many entries the table can hold.
+     *
+     * @return long     The number of entries
+     */
+    public long getCapacity() {
+        return bucketCount * BUCKET_ENTRIES;
+    }
+
+    /**
+     * This returns how many probes found their board.
+     *
+     * @return long     The number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * This returns how many probes did not find their board.
+     *
+     * @return long     The number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * This returns how many entries have been written.
+     *
+     * @return long     The number of stores
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * This returns how many stores pushed out an entry for a different board.
+     *
+     * @return long     The number of collisions
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+}
@@ -0,0 +1,129 @@
+package benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * EngineBenchmark runs the Benchmark2048 board cases under JMH, on every board size and
+ * fill level. Run it with -prof gc to see the bytes allocated per operation.
+ *
+ * The game classes are in the default package, which cannot be imported from here, so
+ * the cases are fetched once per trial with reflection from Benchmark2048.operation and
+ * called through IntToLongFunction; the calls being measured involve no reflection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+    /*************************************************************************/
+    /* Parameters */
+    @Param({"4packed", "4", "5", "6", "7", "8", "9", "10"})
+    public String board; // Board size, with "packed" for the packed 4x4 engine
+    @Param({"0.25", "0.5", "0.75", "0.95"})
+    public double fill; // Share of cells holding tiles
+
+    /*************************************************************************/
+    /* Variables */
+    private IntToLongFunction copyFrom;
+    private IntToLongFunction moveUp;
+    private IntToLongFunction moveDown;
+    private IntToLongFunction moveLeft;
+    private IntToLongFunction moveRight;
+    private IntToLongFunction newTile;
+    private IntToLongFunction getGameStatus;
+    private IntToLongFunction getValue;
+    private int call; // Counts the calls, so the cases step through all of their prepared boards
+
+    /*************************************************************************/
+    /* Setup Method */
+    /**
+     * This prepares the boards for every case.
+     *
+     * @throws ReflectiveOperationException     If Benchmark2048 is not on the class path
+     */
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        copyFrom = load("copyFrom");
+        moveUp = load("move(UP)");
+        moveDown = load("move(DOWN)");
+        moveLeft = load("move(LEFT)");
+        moveRight = load("move(RIGHT)");
+        newTile = load("newTile");
+        getGameStatus = load("getGameStatus");
+        getValue = load("Board.getValue");
+    }
+
+    // Gets one case from Benchmark2048.operation
+    private IntToLongFunction load(String name) throws ReflectiveOperationException {
+        boolean packed = board.endsWith("packed");
+        int size = Integer.parseInt(packed ? board.substring(0, board.length() - "packed".length()) : board);
+        Method operation = Class.forName("Benchmark2048")
+                .getMethod("operation", String.class, int.class, boolean.class, double.class);
+        return (IntToLongFunction) operation.invoke(null, name, size, packed, fill);
+    }
+
+    // Returns the next call number, kept positive
+    private int next(){
+        call = (call + 1) & Integer.MAX_VALUE;
+        return call;
+    }
+
+    /*************************************************************************/
+    /* Benchmarks */
+    // Every move, newTile and status case copies a prepared board first; this is that copy alone
+    @Benchmark
+    public void copyFrom(Blackhole blackhole){
+        blackhole.consume(copyFrom.applyAsLong(next()));
+    }
+
+    @Benchmark
+    public void moveUp(Blackhole blackhole){
+        blackhole.consume(moveUp.applyAsLong(next()));
+    }
+
+    @Benchmark
+    public void moveDown(Blackhole blackhole){
+        blackhole.consume(moveDown.applyAsLong(next()));
+    }
+
+    @Benchmark
+    public void moveLeft(Blackhole blackhole){
+        blackhole.consume(moveLeft.applyAsLong(next()));
+    }
+
+    @Benchmark
+    public void moveRight(Blackhole blackhole){
+        blackhole.consume(moveRight.applyAsLong(next()));
+    }
+
+    @Benchmark
+    public void newTile(Blackhole blackhole){
+        blackhole.consume(newTile.applyAsLong(next()));
+    }
+
+    @Benchmark
+    public void getGameStatus(Blackhole blackhole){
+        blackhole.consume(getGameStatus.applyAsLong(next()));
+    }
+
+    @Benchmark
+    public void getValue(Blackhole blackhole){
+        blackhole.consume(getValue.applyAsLong(next()));
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * LargeBoardBenchmark times one random move (and the new tile after it) on a LargeBoard
+ * for each board size and fork/join pool size. Every combination is warmed up on its
+ * own, so comparing the pool sizes of one board size shows how moves scale with threads.
+ *
+ * The move is fetched once per trial with reflection from LargeBoard.randomMoves, as
+ * EngineBenchmark does for the default-package game classes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LargeBoardBenchmark {
+    /*************************************************************************/
+    /* Parameters */
+    @Param({"64", "256", "1024", "4096"})
+    public int size; // Rows/columns of the board
+    @Param({"1", "2", "4"})
+    public int parallelism; // Threads in the pool the moves run on
+
+    /*************************************************************************/
+    /* Variables */
+    private ForkJoinPool pool;
+    private LongSupplier move;
+
+    /*************************************************************************/
+    /* Setup Methods */
+    /**
+     * This creates the pool and a half filled board.
+     *
+     * @throws ReflectiveOperationException     If LargeBoard is not on the class path
+     */
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        pool = new ForkJoinPool(parallelism);
+        Method randomMoves = Class.forName("LargeBoard")
+                .getMethod("randomMoves", int.class, ForkJoinPool.class, long.class);
+        move = (LongSupplier) randomMoves.invoke(null, size, pool, (long) size);
+    }
+
+    /**
+     * This stops the pool.
+     */
+    @TearDown
+    public void tearDown(){
+        pool.shutdown();
+    }
+
+    /*************************************************************************/
+    /* Benchmarks */
+    @Benchmark
+    public void move(Blackhole blackhole){
+        blackhole.consume(move.getAsLong());
+    }
+}
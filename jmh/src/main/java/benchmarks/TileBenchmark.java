@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * TileBenchmark compares making a new Tile with looking up the shared one (the Tile.new
+ * and Tile.of cases of Benchmark2048, fetched the same way as in EngineBenchmark).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TileBenchmark {
+    /*************************************************************************/
+    /* Variables */
+    private IntToLongFunction tileNew;
+    private IntToLongFunction tileOf;
+    private int call; // Counts the calls, so the tile value changes every time
+
+    /*************************************************************************/
+    /* Setup Method */
+    /**
+     * This looks up both cases.
+     *
+     * @throws ReflectiveOperationException     If Benchmark2048 is not on the class path
+     */
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Method operation = Class.forName("Benchmark2048")
+                .getMethod("operation", String.class, int.class, boolean.class, double.class);
+        tileNew = (IntToLongFunction) operation.invoke(null, "Tile.new", 0, false, 0.0);
+        tileOf = (IntToLongFunction) operation.invoke(null, "Tile.of", 0, false, 0.0);
+    }
+
+    /*************************************************************************/
+    /* Benchmarks */
+    @Benchmark
+    public void tileNew(Blackhole blackhole){
+        blackhole.consume(tileNew.applyAsLong(call++));
+    }
+
+    @Benchmark
+    public void tileOf(Blackhole blackhole){
+        blackhole.consume(tileOf.applyAsLong(call++));
+    }
+}